@@ -16,89 +16,65 @@ import java.util.Objects;
 
 public class AtomicRequest<T, V> extends Request<T> {
 	private final String TAG = AtomicRequest.class.getSimpleName();
-	private Task mTimeoutCheckTask;
+	private volatile Task mTimeoutCheckTask;
 
 	private Request<T> mMajorAction;
 	private Callback<T> mMajorActionCallback;
 	private volatile Request<V> mRollbackAction;
 	private volatile Callback<V> mRollbackActionCallback;
-	private boolean mCancelingActionFlag;
 
 	private Helper<V> mHelper;
 
 	private final Callback<T> mMajorIntermediateCallback = new Callback<T>() {
 
 		private void handelResult(RequestStatus result, Consumer<Callback<T>> callbackHandler) {
-			synchronized (mRequestLock) {
-				if (!isRequestRunning()) {
-					return;
-				}
-				Wnn.c(mTimeoutCheckTask, Task::cancel);
-				setStatus(result);
-				callbackHandler.accept(mMajorActionCallback);
+			if (!concludeStatus(result)) {
+				return;
 			}
+			Wnn.c(mTimeoutCheckTask, Task::cancel);
+			callbackHandler.accept(mMajorActionCallback);
 		}
 
 		@Override
 		public void accept(T ret) {
-			handelResult(
-					RequestStatus.Done,
-					callback -> {
-						setResultValue(ret);
-						releaseResource("Major action accept result");
-						try {
-							callback.accept(ret);
-						} catch (Exception e) {
-							//ignore
-						}
-					}
-			);
+			if (!concludeDone(ret)) {
+				return;
+			}
+			Wnn.c(mTimeoutCheckTask, Task::cancel);
+			releaseResource("Major action accept result");
+			try {
+				mMajorActionCallback.accept(ret);
+			} catch (Exception e) {
+				//ignore
+			}
 		}
 
 		@Override
 		public void onCanceled() {
-			if (mCancelingActionFlag) {
-				return;
-			}
-			Exception e = new RuntimeException("Inner action cancel abnormally");
-			handelResult(
-					RequestStatus.Exception,
-					callback -> {
-						Exception exp = new RuntimeException(String.format("Error executing atomic request tagged %s", getTag()), e);
-						setResultException(exp);
-						try {
-							callback.onException(exp);
-						} catch (Exception ee) {
-							//ignore
-						}
-						try {
-							ariseRollback();
-						} catch (Exception ee) {
-							Logger.printException(TAG, new RuntimeException(String.format("Error arising rollback for atomic request tagged %s on major action cancel, calling chain: %s", getTag(), generateCallChainInfo()), ee));
-						}
-					}
-			);
+			handelException(new RuntimeException("Inner action cancel abnormally"), "cancel");
 		}
 
 		@Override
 		public void onException(Exception e) {
-			handelResult(
-					RequestStatus.Exception,
-					callback -> {
-						Exception exp = new RuntimeException(String.format("Error executing atomic request tagged %s", getTag()), e);
-						setResultException(exp);
-						try {
-							callback.onException(exp);
-						} catch (Exception ee) {
-							//ignore
-						}
-						try {
-							ariseRollback();
-						} catch (Exception ee) {
-							Logger.printException(TAG, new RuntimeException(String.format("Error arising rollback for atomic request tagged %s on major action exception, calling chain: %s", getTag(), generateCallChainInfo()), ee));
-						}
-					}
-			);
+			handelException(e, "exception");
+		}
+
+		private void handelException(Exception e, String event) {
+			Exception exp = new RequestException(() -> String.format("Error executing atomic request tagged %s", getTag()), e);
+			if (!concludeException(exp)) {
+				return;
+			}
+			Wnn.c(mTimeoutCheckTask, Task::cancel);
+			try {
+				mMajorActionCallback.onException(exp);
+			} catch (Exception ee) {
+				//ignore
+			}
+			try {
+				ariseRollback();
+			} catch (Exception ee) {
+				Logger.printException(TAG, new RuntimeException(String.format("Error arising rollback for atomic request tagged %s on major action %s, calling chain: %s", getTag(), event, generateCallChainInfo()), ee));
+			}
 		}
 
 		@Override
@@ -152,7 +128,7 @@ public class AtomicRequest<T, V> extends Request<T> {
 			synchronized (mRequestLock) {
 				releaseResource(String.format("Rollback on exception: %s", e.getMessage()));
 				try {
-					mRollbackActionCallback.onException(new RuntimeException(String.format("Error executing rollback action for atomic request tagged %s", getTag()), e));
+					mRollbackActionCallback.onException(new RequestException(() -> String.format("Error executing rollback action for atomic request tagged %s", getTag()), e));
 				} catch (Exception ee) {
 					//ignore
 				}
@@ -218,15 +194,12 @@ public class AtomicRequest<T, V> extends Request<T> {
 				throw new RuntimeException(String.format("Try to launch a atomic request tagged %s which is not idle", getTag()));
 			}
 			Objects.requireNonNull(callback);
-			mMajorActionCallback = callback;
+			mMajorActionCallback = dispatchCallback(callback);
 			setStatus(RequestStatus.Pending);
 			timeout = Math.max(timeout, Request.TIMEOUT_UNLIMITED);
 			setTimeout(timeout);
 			setLaunchTime(System.currentTimeMillis());
-			List<Request> callingChain = new ArrayList<>();
-			callingChain.addAll(getCallingChain());
-			callingChain.add(this);
-			mMajorAction.setupCallingChain(callingChain);
+			mMajorAction.setupCaller(this);
 			mMajorAction.setTaskScheduler(getTaskScheduler());
 			boolean resAcquired = false;
 			Exception expAcquiringRes = null;
@@ -238,38 +211,36 @@ public class AtomicRequest<T, V> extends Request<T> {
 			if (!resAcquired) {
 				String msg = String.format("Unable to acquire resource for atomic request tagged %s", getTag());
 				Exception e = expAcquiringRes == null ? new RuntimeException(msg) : new RuntimeException(msg, expAcquiringRes);
-				setResultException(e);
-				setStatus(RequestStatus.Exception);
+				if (!concludeException(e)) {
+					return;
+				}
 				try {
-					callback.onException(e);
+					mMajorActionCallback.onException(e);
 				} catch (Exception ee) {
 					//ignore
 				}
 				return;
 			}
-			if (timeout > 0) {
+			if (timeout > 0 && !isDeadlineShared()) {
 				mTimeoutCheckTask = scheduleTaskDelayed(
 						() -> {
-							synchronized (mRequestLock) {
-								if (!isRequestRunning()) {
-									return;
-								}
-								setStatus(RequestStatus.Timeout);
-								try {
-									mMajorAction.cancel();
-								} catch (Exception e) {
-									Logger.printException(TAG, new RuntimeException(String.format("Error canceling major action for atomic request tagged %s on reaching timeout, calling chain: %s", getTag(), generateCallChainInfo()), e));
-								}
-								try {
-									ariseRollback();
-								} catch (Exception ee) {
-									Logger.printException(TAG, new RuntimeException(String.format("Error arising rollback for atomic request tagged %s on reaching timeout, calling chain: %s", getTag(), generateCallChainInfo()), ee));
-								}
-								try {
-									mMajorActionCallback.onTimeout();
-								} catch (Exception e) {
-									//ignore
-								}
+							if (!concludeStatus(RequestStatus.Timeout)) {
+								return;
+							}
+							try {
+								mMajorAction.cancel();
+							} catch (Exception e) {
+								Logger.printException(TAG, new RuntimeException(String.format("Error canceling major action for atomic request tagged %s on reaching timeout, calling chain: %s", getTag(), generateCallChainInfo()), e));
+							}
+							try {
+								ariseRollback();
+							} catch (Exception ee) {
+								Logger.printException(TAG, new RuntimeException(String.format("Error arising rollback for atomic request tagged %s on reaching timeout, calling chain: %s", getTag(), generateCallChainInfo()), ee));
+							}
+							try {
+								mMajorActionCallback.onTimeout();
+							} catch (Exception e) {
+								//ignore
 							}
 						},
 						timeout
@@ -277,17 +248,18 @@ public class AtomicRequest<T, V> extends Request<T> {
 			}
 			try {
 				onLaunch();
-				mMajorAction.launch(mMajorIntermediateCallback, timeout);
+				mMajorAction.launch(mMajorIntermediateCallback, propagateDeadline(mMajorAction, timeout));
 			} catch (Exception e) {
 				if (!isRequestRunning()) {
 					return;
 				}
 				Wnn.c(mTimeoutCheckTask, Task::cancel);
-				Exception exp = new RuntimeException(String.format("Failed to launch  atomic request tagged %s", getTag()), e);
-				setResultException(exp);
-				setStatus(RequestStatus.Exception);
+				Exception exp = new RequestException(() -> String.format("Failed to launch  atomic request tagged %s", getTag()), e);
+				if (!concludeException(exp)) {
+					return;
+				}
 				try {
-					callback.onException(exp);
+					mMajorActionCallback.onException(exp);
 				} catch (Exception ee) {
 					//ignore
 				}
@@ -297,36 +269,31 @@ public class AtomicRequest<T, V> extends Request<T> {
 
 	@Override
 	public void cancel() {
-		synchronized (mRequestLock) {
-			if (!isRequestRunning()) {
-				return;
-			}
-			if (mMajorAction.isRequestRunning()) {
-				mCancelingActionFlag = true;
-				try {
-					mMajorAction.cancel();
-				} catch (Exception e) {
-					throw new RuntimeException(String.format("Error canceling major action for atomic action tagged %s on invoking cancel", getTag()), e);
-				} finally {
-					mCancelingActionFlag = false;
-				}
-			}
-			if (!isRequestRunning()) {
-				return;
-			}
-			Wnn.c(mTimeoutCheckTask, Task::cancel);
-			setStatus(RequestStatus.Canceled);
+		if (!concludeStatus(RequestStatus.Canceled)) {
+			return;
+		}
+		Wnn.c(mTimeoutCheckTask, Task::cancel);
+		Exception exceptionCanceling = null;
+		if (mMajorAction.isRequestRunning()) {
 			try {
-				mMajorActionCallback.onCanceled();
+				mMajorAction.cancel();
 			} catch (Exception e) {
-				//ignore
-			}
-			try {
-				ariseRollback();
-			} catch (Exception ee) {
-				Logger.printException(TAG, new RuntimeException(String.format("Error arising rollback for atomic request tagged %s on invoking cancel, calling chain: %s", getTag(), generateCallChainInfo()), ee));
+				exceptionCanceling = e;
 			}
 		}
+		try {
+			mMajorActionCallback.onCanceled();
+		} catch (Exception e) {
+			//ignore
+		}
+		try {
+			ariseRollback();
+		} catch (Exception ee) {
+			Logger.printException(TAG, new RuntimeException(String.format("Error arising rollback for atomic request tagged %s on invoking cancel, calling chain: %s", getTag(), generateCallChainInfo()), ee));
+		}
+		if (exceptionCanceling != null) {
+			throw new RequestException(() -> String.format("Error canceling major action for atomic action tagged %s on invoking cancel", getTag()), exceptionCanceling);
+		}
 	}
 
 	private void ariseRollback() {
@@ -344,17 +311,14 @@ public class AtomicRequest<T, V> extends Request<T> {
 		}
 		mRollbackAction = rollbackActionRef.value;
 		mRollbackActionCallback = rollbackCallbackRef.value;
-		mRollbackAction.setTag(String.format("Rollback_for_%s", getTag()));
-		List<Request> callingChain = new ArrayList<>();
-		callingChain.addAll(getCallingChain());
-		callingChain.add(this);
-		mRollbackAction.setupCallingChain(callingChain);
+		mRollbackAction.setTagSupplier(() -> String.format("Rollback_for_%s", getTag()));
+		mRollbackAction.setupCaller(this);
 		mRollbackAction.setTaskScheduler(getTaskScheduler());
 		try {
 			mRollbackAction.launch(mRollbackIntermediateCallback, rollbackTimeoutRef.value);
 		} catch (Exception e) {
 			try {
-				mRollbackActionCallback.onException(new RuntimeException(String.format("Failed to launch roll back action for atomic request tagged %s", getTag()), e));
+				mRollbackActionCallback.onException(new RequestException(() -> String.format("Failed to launch roll back action for atomic request tagged %s", getTag()), e));
 			} catch (Exception ee) {
 				//ignore
 			}
@@ -375,6 +339,14 @@ public class AtomicRequest<T, V> extends Request<T> {
 		return String.format("(Atomic Request) %s", getTag());
 	}
 
+	@Override
+	protected List<Request<?>> getChildRequests() {
+		List<Request<?>> childRequests = new ArrayList<>();
+		Wnn.c(mMajorAction, childRequests::add);
+		Wnn.c(mRollbackAction, childRequests::add);
+		return childRequests;
+	}
+
 	@Override
 	public String dumpCallingStatus() {
 		synchronized (mRequestLock) {
@@ -0,0 +1,446 @@
+package com.macfred.util.utils;
+
+import com.macfred.util.Logger;
+import com.macfred.util.function.Callback;
+import com.macfred.util.function.Consumer;
+import com.macfred.util.function.Function;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Request the value of a single key through a {@link Batcher}, keys submitted within the batch window are loaded by one batch
+ * request and the values are handed back to each waiter. Each waiter keeps its own callback and timeout, a launched batch
+ * request is canceled only when every waiter in the batch has been canceled or reached its timeout.
+ */
+public class BatchingRequest<K, V> extends Request<V> {
+	private static final String TAG = BatchingRequest.class.getSimpleName();
+	private final Batcher<K, V> mBatcher;
+	private final K mKey;
+	private volatile Batcher.Batch<K, V> mBatch;
+	private volatile Task mTimeoutCheckTask;
+	private Callback<V> mCallback;
+
+	private BatchingRequest(Batcher<K, V> batcher, K key) {
+		mBatcher = batcher;
+		mKey = key;
+	}
+
+	@Override
+	public void launch(Callback<V> callback, long timeout) {
+		synchronized (mRequestLock) {
+			if (!isRequestIdle()) {
+				throw new RuntimeException(String.format("Launch a batching request tagged %s, which is in status %s", getTag(), getStatus()));
+			}
+			Objects.requireNonNull(callback);
+			mCallback = dispatchCallback(callback);
+			setStatus(RequestStatus.Pending);
+			timeout = Math.max(timeout, Request.TIMEOUT_UNLIMITED);
+			setTimeout(timeout);
+			setLaunchTime(System.currentTimeMillis());
+			if (timeout > 0 && !isDeadlineShared()) {
+				mTimeoutCheckTask = scheduleTaskDelayed(
+						() -> {
+							if (!concludeStatus(RequestStatus.Timeout)) {
+								return;
+							}
+							detach("reaching timeout");
+							try {
+								mCallback.onTimeout();
+							} catch (Exception e) {
+								//ignore
+							}
+						},
+						timeout
+				);
+			}
+			try {
+				onLaunch();
+				mBatcher.submit(this);
+			} catch (Exception e) {
+				if (!isRequestRunning()) {
+					return;
+				}
+				concludeWithException(new RequestException(() -> String.format("Error launching batching request tagged: %s", getTag()), e));
+			}
+		}
+	}
+
+	private void onBatchConcluded(Request<Map<K, V>> batchRequest) {
+		synchronized (mRequestLock) {
+			if (!isRequestRunning()) {
+				return;
+			}
+			switch (batchRequest.getStatus()) {
+				case Done: {
+					Map<K, V> values = batchRequest.getResultValue();
+					if (values == null || !values.containsKey(mKey)) {
+						concludeWithException(new RequestException(() -> String.format("Batch request tagged %s returned no value for key %s", batchRequest.getTag(), mKey)));
+						return;
+					}
+					V result = values.get(mKey);
+					if (!concludeDone(result)) {
+						return;
+					}
+					Wnn.c(mTimeoutCheckTask, Task::cancel);
+					try {
+						mCallback.accept(result);
+					} catch (Exception e) {
+						//ignore
+					}
+					return;
+				}
+				case Exception:
+					concludeWithException(new RequestException(() -> String.format("Batch request tagged %s encountered failure", batchRequest.getTag()), batchRequest.getResultException()));
+					return;
+				case Timeout:
+					concludeWithException(new RequestException(() -> String.format("Batch request tagged %s timeout", batchRequest.getTag())));
+					return;
+				default:
+					concludeWithException(new RequestException(() -> String.format("Batch request tagged %s cancel abnormally", batchRequest.getTag())));
+			}
+		}
+	}
+
+	private void concludeWithException(Exception exception) {
+		if (!concludeException(exception)) {
+			return;
+		}
+		Wnn.c(mTimeoutCheckTask, Task::cancel);
+		detach("failure");
+		try {
+			mCallback.onException(exception);
+		} catch (Exception e) {
+			//ignore
+		}
+	}
+
+	private void detach(String reason) {
+		try {
+			mBatcher.detach(this);
+		} catch (Exception e) {
+			Logger.printException(TAG, new RuntimeException(String.format("Error detaching batching request tagged %s on %s, calling chain: %s", getTag(), reason, generateCallChainInfo()), e));
+		}
+	}
+
+	@Override
+	public void cancel() {
+		if (!concludeStatus(RequestStatus.Canceled)) {
+			return;
+		}
+		Wnn.c(mTimeoutCheckTask, Task::cancel);
+		Exception exceptionCanceling = null;
+		try {
+			mBatcher.detach(this);
+		} catch (Exception e) {
+			exceptionCanceling = e;
+		}
+		try {
+			mCallback.onCanceled();
+		} catch (Exception e) {
+			//ignore
+		}
+		if (exceptionCanceling != null) {
+			throw new RuntimeException(String.format("Error canceling batching request tagged %s, calling chain: %s", getTag(), generateCallChainInfo()), exceptionCanceling);
+		}
+	}
+
+	public K getKey() {
+		return mKey;
+	}
+
+	@Override
+	protected String generateCallingInfo() {
+		return String.format("(Batching Request) %s", getTag());
+	}
+
+	@Override
+	protected List<Request<?>> getChildRequests() {
+		Batcher.Batch<K, V> batch = mBatch;
+		if (batch == null || batch.mRequest == null) {
+			return Collections.emptyList();
+		}
+		return Collections.singletonList(batch.mRequest);
+	}
+
+	@Override
+	public String dumpCallingStatus() {
+		synchronized (mRequestLock) {
+			RequestStatus status = getStatus();
+			String content = "";
+			switch (status) {
+				case Pending:
+					content = String.format("Running: %sms remains", getTimeoutRemains());
+					break;
+				case Idle:
+				case Timeout:
+				case Canceled:
+					content = status.name();
+					break;
+				case Done:
+					content = String.format("Done: result {%s}", printResultValue());
+					break;
+				case Exception:
+					content = String.format("Exception: %s", Wnn.f(getResultException(), Exception::getMessage));
+					break;
+			}
+			List<String> subActionStatus = new ArrayList<>();
+			for (Request<?> subAction : getChildRequests()) {
+				subActionStatus.add(subAction.dumpCallingStatus());
+			}
+			return concatDumpTree(String.format("%s:: %s", generateCallingInfo(), content), subActionStatus);
+		}
+	}
+
+	/**
+	 * Collect submitted keys until the batch window elapses or the batch holds max batch size distinct keys, then load them with
+	 * one request generated by the batch request generator. The batch window is scheduled on the task scheduler of the batcher.
+	 */
+	public static class Batcher<K, V> {
+		private final Object mBatchLock = new Object();
+		private final String TAG;
+		private final Function<Collection<K>, Request<Map<K, V>>> mBatchRequestGenerator;
+		private final int mMaxBatchSize;
+		private final long mBatchWindow;
+		private final long mBatchTimeout;
+		private volatile TaskScheduler mTaskScheduler;
+		private Batch<K, V> mPendingBatch;
+		private int mBatchCount;
+
+		public Batcher(String tag, Function<Collection<K>, Request<Map<K, V>>> batchRequestGenerator, int maxBatchSize, long batchWindow) {
+			this(tag, batchRequestGenerator, maxBatchSize, batchWindow, Request.TIMEOUT_UNLIMITED);
+		}
+
+		/**
+		 * @param batchTimeout timeout of the batch requests, independent of the timeouts of the waiters
+		 */
+		public Batcher(String tag, Function<Collection<K>, Request<Map<K, V>>> batchRequestGenerator, int maxBatchSize, long batchWindow, long batchTimeout) {
+			if (maxBatchSize <= 0) {
+				throw new IllegalArgumentException(String.format("Illegal max batch size: %s", maxBatchSize));
+			}
+			TAG = tag;
+			mBatchRequestGenerator = Objects.requireNonNull(batchRequestGenerator);
+			mMaxBatchSize = maxBatchSize;
+			mBatchWindow = Math.max(batchWindow, 0);
+			mBatchTimeout = Math.max(batchTimeout, Request.TIMEOUT_UNLIMITED);
+		}
+
+		public void setTaskScheduler(TaskScheduler taskScheduler) {
+			mTaskScheduler = taskScheduler;
+		}
+
+		public TaskScheduler getTaskScheduler() {
+			return Wnn.d(mTaskScheduler, Request.getDefaultTaskScheduler());
+		}
+
+		public BatchingRequest<K, V> newRequest(K key) {
+			BatchingRequest<K, V> request = new BatchingRequest<>(this, key);
+			request.setTagSupplier(() -> String.format("%s-%s", TAG, key));
+			return request;
+		}
+
+		/**
+		 * @return number of batch requests generated so far
+		 */
+		public int getBatchCount() {
+			synchronized (mBatchLock) {
+				return mBatchCount;
+			}
+		}
+
+		/**
+		 * Launch the pending batch right away instead of waiting for the batch window.
+		 */
+		public void flush() {
+			Batch<K, V> batch;
+			synchronized (mBatchLock) {
+				batch = mPendingBatch;
+				if (batch == null) {
+					return;
+				}
+				mPendingBatch = null;
+				Wnn.c(batch.mWindowTask, Task::cancel);
+			}
+			launch(batch);
+		}
+
+		private void submit(BatchingRequest<K, V> waiter) {
+			Batch<K, V> full = null;
+			synchronized (mBatchLock) {
+				if (!waiter.isRequestRunning()) {
+					//concluded by cancel or timeout while launching
+					return;
+				}
+				Batch<K, V> batch = mPendingBatch;
+				if (batch == null) {
+					batch = new Batch<>();
+					mPendingBatch = batch;
+					Batch<K, V> windowBatch = batch;
+					batch.mWindowTask = getTaskScheduler().scheduleTask(
+							() -> {
+								synchronized (mBatchLock) {
+									if (mPendingBatch != windowBatch) {
+										return;
+									}
+									mPendingBatch = null;
+								}
+								launch(windowBatch);
+							},
+							System.currentTimeMillis() + mBatchWindow
+					);
+				}
+				List<BatchingRequest<K, V>> waiters = batch.mWaiters.get(waiter.mKey);
+				if (waiters == null) {
+					waiters = new ArrayList<>();
+					batch.mWaiters.put(waiter.mKey, waiters);
+				}
+				waiters.add(waiter);
+				waiter.mBatch = batch;
+				if (batch.mWaiters.size() >= mMaxBatchSize) {
+					mPendingBatch = null;
+					Wnn.c(batch.mWindowTask, Task::cancel);
+					full = batch;
+				}
+			}
+			if (full != null) {
+				launch(full);
+			}
+		}
+
+		private void launch(Batch<K, V> batch) {
+			List<K> keys;
+			BatchingRequest<K, V> firstWaiter = null;
+			synchronized (mBatchLock) {
+				if (batch.mConcluded || batch.mWaiters.isEmpty()) {
+					return;
+				}
+				for (List<BatchingRequest<K, V>> waiters : batch.mWaiters.values()) {
+					if (!waiters.isEmpty()) {
+						firstWaiter = waiters.get(0);
+						break;
+					}
+				}
+				keys = new ArrayList<>(batch.mWaiters.keySet());
+			}
+			//the generator and the waiter callbacks run outside the batch lock, they may be slow or submit to this batcher again
+			Request<Map<K, V>> request;
+			try {
+				request = Objects.requireNonNull(mBatchRequestGenerator.apply(keys), "Failed to generate batch request");
+			} catch (Exception e) {
+				concludeBatch(batch, waiter -> waiter.concludeWithException(new RequestException(() -> String.format("Error generating batch request for batching request tagged %s", waiter.getTag()), e)));
+				return;
+			}
+			synchronized (mBatchLock) {
+				if (batch.mConcluded) {
+					//every waiter left while generating
+					return;
+				}
+				int batchIndex = mBatchCount++;
+				request.setTagSupplier(() -> String.format("%s-batch-%s", TAG, batchIndex));
+				batch.mRequest = request;
+			}
+			request.setupCaller(firstWaiter);
+			request.setTaskScheduler(getTaskScheduler());
+			try {
+				request.launch(
+						new Callback<Map<K, V>>() {
+
+							private void handleResult() {
+								concludeBatch(batch, waiter -> waiter.onBatchConcluded(request));
+							}
+
+							@Override
+							public void accept(Map<K, V> ret) {
+								handleResult();
+							}
+
+							@Override
+							public void onCanceled() {
+								handleResult();
+							}
+
+							@Override
+							public void onException(Exception e) {
+								handleResult();
+							}
+
+							@Override
+							public void onTimeout() {
+								handleResult();
+							}
+						},
+						mBatchTimeout
+				);
+				boolean abandoned;
+				synchronized (mBatchLock) {
+					abandoned = batch.mConcluded;
+				}
+				if (abandoned && request.isRequestRunning()) {
+					//every waiter left while launching
+					request.cancel();
+				}
+			} catch (Exception e) {
+				concludeBatch(batch, waiter -> waiter.concludeWithException(new RequestException(() -> String.format("Error launching batch request tagged %s", request.getTag()), e)));
+			}
+		}
+
+		private void concludeBatch(Batch<K, V> batch, Consumer<BatchingRequest<K, V>> operation) {
+			List<BatchingRequest<K, V>> waiters = new ArrayList<>();
+			synchronized (mBatchLock) {
+				if (batch.mConcluded) {
+					return;
+				}
+				batch.mConcluded = true;
+				for (List<BatchingRequest<K, V>> keyWaiters : batch.mWaiters.values()) {
+					waiters.addAll(keyWaiters);
+				}
+				batch.mWaiters.clear();
+			}
+			for (BatchingRequest<K, V> waiter : waiters) {
+				operation.accept(waiter);
+			}
+		}
+
+		private void detach(BatchingRequest<K, V> waiter) {
+			Request<Map<K, V>> abandonedRequest;
+			synchronized (mBatchLock) {
+				Batch<K, V> batch = waiter.mBatch;
+				if (batch == null || batch.mConcluded) {
+					return;
+				}
+				List<BatchingRequest<K, V>> waiters = batch.mWaiters.get(waiter.mKey);
+				if (waiters == null || !waiters.remove(waiter)) {
+					return;
+				}
+				if (waiters.isEmpty()) {
+					//keys nobody waits for are left out of a pending batch
+					batch.mWaiters.remove(waiter.mKey);
+				}
+				if (!batch.mWaiters.isEmpty()) {
+					return;
+				}
+				batch.mConcluded = true;
+				if (mPendingBatch == batch) {
+					mPendingBatch = null;
+					Wnn.c(batch.mWindowTask, Task::cancel);
+				}
+				abandonedRequest = batch.mRequest;
+			}
+			if (abandonedRequest != null && abandonedRequest.isRequestRunning()) {
+				abandonedRequest.cancel();
+			}
+		}
+
+		private static class Batch<K, V> {
+			private final Map<K, List<BatchingRequest<K, V>>> mWaiters = new LinkedHashMap<>();
+			private Task mWindowTask;
+			private volatile Request<Map<K, V>> mRequest;
+			private boolean mConcluded;
+		}
+	}
+}
@@ -0,0 +1,369 @@
+package com.macfred.util.utils;
+
+import com.macfred.util.Logger;
+import com.macfred.util.function.Callback;
+import com.macfred.util.function.Consumer;
+import com.macfred.util.function.Function;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Wait for the shared request of a key in a {@link Registry}, requests launched for the same key while the shared request is
+ * running are attached to it instead of launching another one. Each waiter keeps its own callback and timeout, the shared
+ * request is canceled only when every waiter attached to it has been canceled or reached its timeout.
+ */
+public class CoalescingRequest<K, T> extends Request<T> {
+	private static final String TAG = CoalescingRequest.class.getSimpleName();
+	private final Registry<K, T> mRegistry;
+	private final K mKey;
+	private volatile Registry.Flight<K, T> mFlight;
+	private volatile Task mTimeoutCheckTask;
+	private Callback<T> mCallback;
+
+	private CoalescingRequest(Registry<K, T> registry, K key) {
+		mRegistry = registry;
+		mKey = key;
+	}
+
+	@Override
+	public void launch(Callback<T> callback, long timeout) {
+		synchronized (mRequestLock) {
+			if (!isRequestIdle()) {
+				throw new RuntimeException(String.format("Launch a coalescing request tagged %s, which is in status %s", getTag(), getStatus()));
+			}
+			Objects.requireNonNull(callback);
+			mCallback = dispatchCallback(callback);
+			setStatus(RequestStatus.Pending);
+			timeout = Math.max(timeout, Request.TIMEOUT_UNLIMITED);
+			setTimeout(timeout);
+			setLaunchTime(System.currentTimeMillis());
+			if (timeout > 0 && !isDeadlineShared()) {
+				mTimeoutCheckTask = scheduleTaskDelayed(
+						() -> {
+							if (!concludeStatus(RequestStatus.Timeout)) {
+								return;
+							}
+							detach("reaching timeout");
+							try {
+								mCallback.onTimeout();
+							} catch (Exception e) {
+								//ignore
+							}
+						},
+						timeout
+				);
+			}
+			try {
+				onLaunch();
+				mRegistry.attach(this);
+			} catch (Exception e) {
+				if (!isRequestRunning()) {
+					return;
+				}
+				concludeWithException(new RequestException(() -> String.format("Error launching coalescing request tagged: %s", getTag()), e));
+			}
+		}
+	}
+
+	private void onFlightConcluded(Request<T> sharedRequest) {
+		synchronized (mRequestLock) {
+			if (!isRequestRunning()) {
+				return;
+			}
+			switch (sharedRequest.getStatus()) {
+				case Done: {
+					T result = sharedRequest.getResultValue();
+					if (!concludeDone(result)) {
+						return;
+					}
+					Wnn.c(mTimeoutCheckTask, Task::cancel);
+					try {
+						mCallback.accept(result);
+					} catch (Exception e) {
+						//ignore
+					}
+					return;
+				}
+				case Exception:
+					concludeWithException(new RequestException(() -> String.format("Shared request tagged %s encountered failure", sharedRequest.getTag()), sharedRequest.getResultException()));
+					return;
+				case Timeout:
+					concludeWithException(new RequestException(() -> String.format("Shared request tagged %s timeout", sharedRequest.getTag())));
+					return;
+				default:
+					concludeWithException(new RequestException(() -> String.format("Shared request tagged %s cancel abnormally", sharedRequest.getTag())));
+			}
+		}
+	}
+
+	private void concludeWithException(Exception exception) {
+		if (!concludeException(exception)) {
+			return;
+		}
+		Wnn.c(mTimeoutCheckTask, Task::cancel);
+		detach("failure");
+		try {
+			mCallback.onException(exception);
+		} catch (Exception e) {
+			//ignore
+		}
+	}
+
+	private void detach(String reason) {
+		try {
+			mRegistry.detach(this);
+		} catch (Exception e) {
+			Logger.printException(TAG, new RuntimeException(String.format("Error detaching coalescing request tagged %s on %s, calling chain: %s", getTag(), reason, generateCallChainInfo()), e));
+		}
+	}
+
+	@Override
+	public void cancel() {
+		if (!concludeStatus(RequestStatus.Canceled)) {
+			return;
+		}
+		Wnn.c(mTimeoutCheckTask, Task::cancel);
+		Exception exceptionCanceling = null;
+		try {
+			mRegistry.detach(this);
+		} catch (Exception e) {
+			exceptionCanceling = e;
+		}
+		try {
+			mCallback.onCanceled();
+		} catch (Exception e) {
+			//ignore
+		}
+		if (exceptionCanceling != null) {
+			throw new RuntimeException(String.format("Error canceling coalescing request tagged %s, calling chain: %s", getTag(), generateCallChainInfo()), exceptionCanceling);
+		}
+	}
+
+	public K getKey() {
+		return mKey;
+	}
+
+	@Override
+	protected String generateCallingInfo() {
+		return String.format("(Coalescing Request) %s", getTag());
+	}
+
+	@Override
+	protected List<Request<?>> getChildRequests() {
+		Registry.Flight<K, T> flight = mFlight;
+		Request<T> sharedRequest = flight == null ? null : flight.mRequest;
+		if (sharedRequest == null) {
+			return Collections.emptyList();
+		}
+		return Collections.singletonList(sharedRequest);
+	}
+
+	@Override
+	public String dumpCallingStatus() {
+		synchronized (mRequestLock) {
+			RequestStatus status = getStatus();
+			String content = "";
+			switch (status) {
+				case Pending:
+					content = String.format("Running: %sms remains", getTimeoutRemains());
+					break;
+				case Idle:
+				case Timeout:
+				case Canceled:
+					content = status.name();
+					break;
+				case Done:
+					content = String.format("Done: result {%s}", printResultValue());
+					break;
+				case Exception:
+					content = String.format("Exception: %s", Wnn.f(getResultException(), Exception::getMessage));
+					break;
+			}
+			List<String> subActionStatus = new ArrayList<>();
+			for (Request<?> subAction : getChildRequests()) {
+				subActionStatus.add(subAction.dumpCallingStatus());
+			}
+			return concatDumpTree(String.format("%s:: %s", generateCallingInfo(), content), subActionStatus);
+		}
+	}
+
+	/**
+	 * Single flight registry, at most one shared request runs for each key at a time.
+	 */
+	public static class Registry<K, T> {
+		private final Object mFlightLock = new Object();
+		private final Map<K, Flight<K, T>> mFlights = new HashMap<>();
+		private final String TAG;
+		private final Function<K, Request<T>> mRequestGenerator;
+		private final long mSharedTimeout;
+
+		public Registry(String tag, Function<K, Request<T>> requestGenerator) {
+			this(tag, requestGenerator, Request.TIMEOUT_UNLIMITED);
+		}
+
+		/**
+		 * @param sharedTimeout timeout of the shared requests, independent of the timeouts of the waiters
+		 */
+		public Registry(String tag, Function<K, Request<T>> requestGenerator, long sharedTimeout) {
+			TAG = tag;
+			mRequestGenerator = Objects.requireNonNull(requestGenerator);
+			mSharedTimeout = Math.max(sharedTimeout, Request.TIMEOUT_UNLIMITED);
+		}
+
+		public CoalescingRequest<K, T> newRequest(K key) {
+			CoalescingRequest<K, T> request = new CoalescingRequest<>(this, key);
+			request.setTagSupplier(() -> String.format("%s-%s", TAG, key));
+			return request;
+		}
+
+		public int getInFlightCount() {
+			synchronized (mFlightLock) {
+				return mFlights.size();
+			}
+		}
+
+		public int getWaiterCount(K key) {
+			synchronized (mFlightLock) {
+				Flight<K, T> flight = mFlights.get(key);
+				return flight == null ? 0 : flight.mWaiters.size();
+			}
+		}
+
+		private void attach(CoalescingRequest<K, T> waiter) {
+			Flight<K, T> flight;
+			boolean launch = false;
+			synchronized (mFlightLock) {
+				if (!waiter.isRequestRunning()) {
+					//concluded by cancel or timeout while launching
+					return;
+				}
+				flight = mFlights.get(waiter.mKey);
+				if (flight == null || flight.mConcluded) {
+					//placeholder flight, the shared request is generated outside the flight lock
+					flight = new Flight<>(waiter.mKey);
+					mFlights.put(waiter.mKey, flight);
+					launch = true;
+				}
+				flight.mWaiters.add(waiter);
+				waiter.mFlight = flight;
+			}
+			if (launch) {
+				launch(flight, waiter);
+			}
+		}
+
+		private void launch(Flight<K, T> flight, CoalescingRequest<K, T> firstWaiter) {
+			Request<T> request;
+			try {
+				request = Objects.requireNonNull(mRequestGenerator.apply(flight.mKey), "Failed to generate shared request");
+			} catch (Exception e) {
+				concludeFlight(flight, waiter -> waiter.concludeWithException(new RequestException(() -> String.format("Error generating shared request for coalescing request tagged %s", waiter.getTag()), e)));
+				return;
+			}
+			synchronized (mFlightLock) {
+				if (flight.mConcluded) {
+					//every waiter left while generating
+					return;
+				}
+				flight.mRequest = request;
+			}
+			request.setTagSupplier(() -> String.format("%s-shared-%s", TAG, flight.mKey));
+			request.setupCaller(firstWaiter);
+			request.setTaskScheduler(firstWaiter.getTaskScheduler());
+			try {
+				request.launch(
+						new Callback<T>() {
+
+							private void handleResult() {
+								concludeFlight(flight, waiter -> waiter.onFlightConcluded(request));
+							}
+
+							@Override
+							public void accept(T ret) {
+								handleResult();
+							}
+
+							@Override
+							public void onCanceled() {
+								handleResult();
+							}
+
+							@Override
+							public void onException(Exception e) {
+								handleResult();
+							}
+
+							@Override
+							public void onTimeout() {
+								handleResult();
+							}
+						},
+						mSharedTimeout
+				);
+				boolean abandoned;
+				synchronized (mFlightLock) {
+					abandoned = flight.mConcluded;
+				}
+				if (abandoned && request.isRequestRunning()) {
+					//every waiter left while launching
+					request.cancel();
+				}
+			} catch (Exception e) {
+				concludeFlight(flight, waiter -> waiter.concludeWithException(new RequestException(() -> String.format("Error launching shared request tagged %s", request.getTag()), e)));
+			}
+		}
+
+		private void concludeFlight(Flight<K, T> flight, Consumer<CoalescingRequest<K, T>> operation) {
+			List<CoalescingRequest<K, T>> waiters;
+			synchronized (mFlightLock) {
+				if (flight.mConcluded) {
+					return;
+				}
+				flight.mConcluded = true;
+				if (mFlights.get(flight.mKey) == flight) {
+					mFlights.remove(flight.mKey);
+				}
+				waiters = new ArrayList<>(flight.mWaiters);
+				flight.mWaiters.clear();
+			}
+			for (CoalescingRequest<K, T> waiter : waiters) {
+				operation.accept(waiter);
+			}
+		}
+
+		private void detach(CoalescingRequest<K, T> waiter) {
+			Flight<K, T> flight;
+			Request<T> abandonedRequest;
+			synchronized (mFlightLock) {
+				flight = waiter.mFlight;
+				if (flight == null || !flight.mWaiters.remove(waiter) || !flight.mWaiters.isEmpty() || flight.mConcluded) {
+					return;
+				}
+				flight.mConcluded = true;
+				if (mFlights.get(flight.mKey) == flight) {
+					mFlights.remove(flight.mKey);
+				}
+				abandonedRequest = flight.mRequest;
+			}
+			if (abandonedRequest != null && abandonedRequest.isRequestRunning()) {
+				abandonedRequest.cancel();
+			}
+		}
+
+		private static class Flight<K, T> {
+			private final K mKey;
+			private final List<CoalescingRequest<K, T>> mWaiters = new ArrayList<>();
+			private volatile Request<T> mRequest;
+			private boolean mConcluded;
+
+			private Flight(K key) {
+				mKey = key;
+			}
+		}
+	}
+}
@@ -0,0 +1,162 @@
+package com.macfred.util.utils;
+
+import com.macfred.util.Logger;
+import com.macfred.util.function.Callback;
+import com.macfred.util.function.Supplier;
+
+import java.util.Objects;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Request concluded by a {@link CompletionStage}, the stage is obtained on launch and observed without blocking any thread.
+ * Canceling this request or reaching its timeout cancels the stage, if it supports {@link CompletionStage#toCompletableFuture()}.
+ */
+public class CompletionStageRequest<T> extends Request<T> {
+	private static final String TAG = CompletionStageRequest.class.getSimpleName();
+	private final Supplier<? extends CompletionStage<T>> mStageSupplier;
+	private volatile CompletionStage<T> mStage;
+	private volatile Task mTimeoutCheckTask;
+	private Callback<T> mCallback;
+
+	/**
+	 * @param stageSupplier invoked on launch, so the work behind the stage starts with this request
+	 */
+	public CompletionStageRequest(Supplier<? extends CompletionStage<T>> stageSupplier) {
+		mStageSupplier = Objects.requireNonNull(stageSupplier);
+	}
+
+	@Override
+	public void launch(Callback<T> callback, long timeout) {
+		synchronized (mRequestLock) {
+			if (!isRequestIdle()) {
+				throw new RuntimeException(String.format("Launch a completion stage request tagged %s, which is in status %s", getTag(), getStatus()));
+			}
+			Objects.requireNonNull(callback);
+			mCallback = dispatchCallback(callback);
+			setStatus(RequestStatus.Pending);
+			timeout = Math.max(timeout, Request.TIMEOUT_UNLIMITED);
+			setTimeout(timeout);
+			setLaunchTime(System.currentTimeMillis());
+			if (timeout > 0 && !isDeadlineShared()) {
+				mTimeoutCheckTask = scheduleTaskDelayed(
+						() -> {
+							if (!concludeStatus(RequestStatus.Timeout)) {
+								return;
+							}
+							cancelStage("reaching timeout");
+							try {
+								mCallback.onTimeout();
+							} catch (Exception e) {
+								//ignore
+							}
+						},
+						timeout
+				);
+			}
+			try {
+				onLaunch();
+				CompletionStage<T> stage = Objects.requireNonNull(mStageSupplier.get(), "Stage supplier generated null");
+				mStage = stage;
+				stage.whenComplete(this::onStageCompleted);
+				if (!isRequestRunning()) {
+					//concluded by cancel or timeout while launching
+					cancelStage("conclusion while launching");
+				}
+			} catch (Exception e) {
+				concludeWithException(new RequestException(() -> String.format("Error launching completion stage request tagged: %s", getTag()), e));
+			}
+		}
+	}
+
+	private void onStageCompleted(T value, Throwable throwable) {
+		if (throwable == null) {
+			if (!concludeDone(value)) {
+				return;
+			}
+			Wnn.c(mTimeoutCheckTask, Task::cancel);
+			try {
+				mCallback.accept(value);
+			} catch (Exception e) {
+				//ignore
+			}
+			return;
+		}
+		Throwable cause = throwable;
+		if ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+			cause = cause.getCause();
+		}
+		concludeWithException(cause instanceof Exception ? (Exception) cause : new RuntimeException(cause));
+	}
+
+	private void concludeWithException(Exception exception) {
+		if (!concludeException(exception)) {
+			return;
+		}
+		Wnn.c(mTimeoutCheckTask, Task::cancel);
+		try {
+			mCallback.onException(exception);
+		} catch (Exception e) {
+			//ignore
+		}
+	}
+
+	private void cancelStage(String reason) {
+		CompletionStage<T> stage = mStage;
+		if (stage == null) {
+			return;
+		}
+		try {
+			stage.toCompletableFuture().cancel(false);
+		} catch (UnsupportedOperationException e) {
+			//stage not cancelable
+		} catch (Exception e) {
+			Logger.printException(TAG, new RuntimeException(String.format("Error canceling stage of completion stage request tagged %s on %s, calling chain: %s", getTag(), reason, generateCallChainInfo()), e));
+		}
+	}
+
+	@Override
+	public void cancel() {
+		if (!concludeStatus(RequestStatus.Canceled)) {
+			return;
+		}
+		Wnn.c(mTimeoutCheckTask, Task::cancel);
+		cancelStage("cancel");
+		try {
+			mCallback.onCanceled();
+		} catch (Exception e) {
+			//ignore
+		}
+	}
+
+	@Override
+	protected String generateCallingInfo() {
+		return String.format("(Completion Stage Request) %s", getTag());
+	}
+
+	@Override
+	public String dumpCallingStatus() {
+		synchronized (mRequestLock) {
+			RequestStatus status = getStatus();
+			String content = "";
+			switch (status) {
+				case Pending:
+					content = String.format("Running: %sms remains", getTimeoutRemains());
+					break;
+				case Idle:
+				case Timeout:
+				case Canceled:
+					content = status.name();
+					break;
+				case Done:
+					content = String.format("Done: result {%s}", printResultValue());
+					break;
+				case Exception:
+					content = String.format("Exception: %s", Wnn.f(getResultException(), Exception::getMessage));
+					break;
+			}
+			return String.format("%s:: %s", generateCallingInfo(), content);
+		}
+	}
+}
@@ -0,0 +1,182 @@
+package com.macfred.util.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compute the chain of requests which determined the completion time of a concluded request tree.
+ * Walking backwards from the end of a node, the child finishing last is on the critical path, then the child finishing
+ * last before that child was launched, and so on, each of them is expanded the same way.
+ */
+public class CriticalPathAnalyzer {
+
+	private CriticalPathAnalyzer() {
+
+	}
+
+	public static CriticalPath analyze(Request<?> root) {
+		if (root.isRequestIdle() || root.isRequestRunning()) {
+			throw new RuntimeException(String.format("Analyze critical path of request tagged %s, which is in status %s", root.getTag(), root.getStatus()));
+		}
+		List<Segment> segments = new ArrayList<>();
+		collect(root, 0, root.getFinishNanoTime(), segments);
+		return new CriticalPath(segments);
+	}
+
+	private static void collect(Request<?> request, int depth, long deadlineNanoTime, List<Segment> segments) {
+		long start = request.getLaunchNanoTime();
+		long end = Math.max(Math.min(request.getFinishNanoTime(), deadlineNanoTime), start);
+		List<Request<?>> children = new ArrayList<>();
+		for (Request<?> child : request.getChildRequests()) {
+			if (!child.isRequestIdle() && !child.isRequestRunning()) {
+				children.add(child);
+			}
+		}
+		long childWaitTime = unionDuration(children, start, end);
+		segments.add(new Segment(request, depth, end - start, end - start - childWaitTime, childWaitTime));
+
+		List<Request<?>> criticalChildren = new ArrayList<>();
+		long cursor = end;
+		while (true) {
+			Request<?> latest = null;
+			for (Request<?> child : children) {
+				long childFinish = child.getFinishNanoTime();
+				if (childFinish <= cursor && child.getLaunchNanoTime() >= start && (latest == null || childFinish > latest.getFinishNanoTime())) {
+					latest = child;
+				}
+			}
+			if (latest == null) {
+				break;
+			}
+			criticalChildren.add(latest);
+			children.remove(latest);
+			cursor = latest.getLaunchNanoTime();
+		}
+		Collections.reverse(criticalChildren);
+		for (Request<?> child : criticalChildren) {
+			collect(child, depth + 1, end, segments);
+		}
+	}
+
+	private static long unionDuration(List<Request<?>> children, long start, long end) {
+		List<long[]> intervals = new ArrayList<>();
+		for (Request<?> child : children) {
+			long childStart = Math.max(child.getLaunchNanoTime(), start);
+			long childEnd = Math.min(child.getFinishNanoTime(), end);
+			if (childEnd > childStart) {
+				intervals.add(new long[]{childStart, childEnd});
+			}
+		}
+		Collections.sort(intervals, Comparator.comparingLong(interval -> interval[0]));
+		long total = 0;
+		long coveredUntil = Long.MIN_VALUE;
+		for (long[] interval : intervals) {
+			if (interval[1] <= coveredUntil) {
+				continue;
+			}
+			total += interval[1] - Math.max(interval[0], coveredUntil);
+			coveredUntil = interval[1];
+		}
+		return total;
+	}
+
+	public static final class CriticalPath {
+		private final List<Segment> mSegments;
+
+		private CriticalPath(List<Segment> segments) {
+			mSegments = Collections.unmodifiableList(segments);
+		}
+
+		/**
+		 * @return requests on the critical path in depth first order, the root comes first
+		 */
+		public List<Segment> getSegments() {
+			return mSegments;
+		}
+
+		/**
+		 * @return the segment spending most time on its own, which is where optimizing pays off
+		 */
+		public Segment getBottleneck() {
+			Segment bottleneck = null;
+			for (Segment segment : mSegments) {
+				if (bottleneck == null || segment.getSelfTime() > bottleneck.getSelfTime()) {
+					bottleneck = segment;
+				}
+			}
+			return bottleneck;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder sb = new StringBuilder();
+			for (Segment segment : mSegments) {
+				for (int i = 0; i < segment.getDepth(); i++) {
+					sb.append("    ");
+				}
+				sb.append(segment).append('\n');
+			}
+			return sb.toString();
+		}
+	}
+
+	public static final class Segment {
+		private final Request<?> mRequest;
+		private final int mDepth;
+		private final long mDuration;
+		private final long mSelfTime;
+		private final long mChildWaitTime;
+
+		private Segment(Request<?> request, int depth, long duration, long selfTime, long childWaitTime) {
+			mRequest = request;
+			mDepth = depth;
+			mDuration = duration;
+			mSelfTime = selfTime;
+			mChildWaitTime = childWaitTime;
+		}
+
+		public Request<?> getRequest() {
+			return mRequest;
+		}
+
+		public int getDepth() {
+			return mDepth;
+		}
+
+		/**
+		 * @return nanoseconds from launch to conclusion
+		 */
+		public long getDuration() {
+			return mDuration;
+		}
+
+		/**
+		 * @return nanoseconds during which no child of the request was running
+		 */
+		public long getSelfTime() {
+			return mSelfTime;
+		}
+
+		/**
+		 * @return nanoseconds during which at least one child of the request was running
+		 */
+		public long getChildWaitTime() {
+			return mChildWaitTime;
+		}
+
+		@Override
+		public String toString() {
+			return String.format(
+					"%s: %s, total %sus, self %sus, waiting on children %sus",
+					mRequest.generateCallingInfo(),
+					mRequest.getStatus(),
+					TimeUnit.NANOSECONDS.toMicros(mDuration),
+					TimeUnit.NANOSECONDS.toMicros(mSelfTime),
+					TimeUnit.NANOSECONDS.toMicros(mChildWaitTime)
+			);
+		}
+	}
+}
@@ -0,0 +1,366 @@
+package com.macfred.util.utils;
+
+import com.macfred.util.Logger;
+import com.macfred.util.function.Callback;
+import com.macfred.util.function.Function;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Run requests as nodes of a dependency graph, each node is launched as soon as all the nodes it depends on are done, with
+ * their result values. A failing node concludes this request and cancels the running nodes, nodes not launched yet are skipped.
+ * Dependencies must be added before the nodes depending on them, so the graph can never contain a cycle.
+ */
+public class DagRequest<T> extends Request<T> {
+	private static final String TAG = DagRequest.class.getSimpleName();
+	private final Map<String, Node> mNodes = new LinkedHashMap<>();
+	private final Deque<Node> mReadyNodes = new ArrayDeque<>();
+	private final List<Request<?>> mLaunchedRequests = new CopyOnWriteArrayList<>();
+	private final Map<String, Object> mResults = new HashMap<>();
+	private final Function<Map<String, Object>, T> mValueCompositor;
+	private volatile Task mTimeoutCheckTask;
+	private Callback<T> mCallback;
+	private int mDoneCount;
+	private boolean mDraining;
+
+	/**
+	 * @param valueCompositor composite the result of this request from the result values of all nodes, keyed by node name
+	 */
+	public DagRequest(Function<Map<String, Object>, T> valueCompositor) {
+		mValueCompositor = Objects.requireNonNull(valueCompositor);
+	}
+
+	/**
+	 * @param requestGenerator generate the request of the node from the result values of its dependencies, keyed by node name
+	 */
+	public void addNode(String name, Function<Map<String, Object>, Request<?>> requestGenerator, String... dependencies) {
+		Objects.requireNonNull(name);
+		Objects.requireNonNull(requestGenerator);
+		synchronized (mRequestLock) {
+			if (!isRequestIdle()) {
+				throw new RuntimeException(String.format("Add node %s to dag request tagged %s, which is in status %s", name, getTag(), getStatus()));
+			}
+			if (mNodes.containsKey(name)) {
+				throw new RuntimeException(String.format("Add node %s to dag request tagged %s, which already has a node named so", name, getTag()));
+			}
+			Node node = new Node(name, requestGenerator);
+			for (String dependency : dependencies) {
+				Node dependencyNode = mNodes.get(dependency);
+				if (dependencyNode == null) {
+					throw new RuntimeException(String.format("Add node %s to dag request tagged %s, which depends on unknown node %s", name, getTag(), dependency));
+				}
+				if (!node.mDependencies.contains(dependencyNode)) {
+					node.mDependencies.add(dependencyNode);
+					dependencyNode.mDependents.add(node);
+				}
+			}
+			mNodes.put(name, node);
+		}
+	}
+
+	public void addNode(String name, Request<?> request, String... dependencies) {
+		Objects.requireNonNull(request);
+		addNode(name, results -> request, dependencies);
+	}
+
+	@Override
+	public void launch(Callback<T> callback, long timeout) {
+		synchronized (mRequestLock) {
+			if (!isRequestIdle()) {
+				throw new RuntimeException(String.format("Launch a dag request tagged %s, which is in status %s", getTag(), getStatus()));
+			}
+			if (mNodes.isEmpty()) {
+				throw new RuntimeException(String.format("Launch a dag request tagged %s to which no node is offered", getTag()));
+			}
+			Objects.requireNonNull(callback);
+			mCallback = dispatchCallback(callback);
+			setStatus(RequestStatus.Pending);
+			timeout = Math.max(timeout, Request.TIMEOUT_UNLIMITED);
+			setTimeout(timeout);
+			setLaunchTime(System.currentTimeMillis());
+			if (timeout > 0 && !isDeadlineShared()) {
+				mTimeoutCheckTask = scheduleTaskDelayed(
+						() -> {
+							if (!concludeStatus(RequestStatus.Timeout)) {
+								return;
+							}
+							cancelRunningNodes("reaching timeout");
+							try {
+								mCallback.onTimeout();
+							} catch (Exception e) {
+								//ignore
+							}
+						},
+						timeout
+				);
+			}
+			try {
+				onLaunch();
+				for (Node node : mNodes.values()) {
+					node.mRemainingDependencyCount = node.mDependencies.size();
+					if (node.mRemainingDependencyCount == 0) {
+						mReadyNodes.offer(node);
+					}
+				}
+				drainReadyNodes();
+			} catch (Exception e) {
+				if (!isRequestRunning()) {
+					return;
+				}
+				concludeWithException(new RequestException(() -> String.format("Error launching dag request tagged: %s", getTag()), e));
+			}
+		}
+	}
+
+	private void drainReadyNodes() {
+		if (mDraining) {
+			return;
+		}
+		mDraining = true;
+		try {
+			Node node;
+			while (isRequestRunning() && (node = mReadyNodes.poll()) != null) {
+				node.launch();
+			}
+		} finally {
+			mDraining = false;
+		}
+	}
+
+	private void onNodeConcluded(Node node) {
+		Request<?> request = node.mRequest;
+		if (!isRequestRunning() || request.isRequestRunning()) {
+			return;
+		}
+		switch (request.getStatus()) {
+			case Done:
+				mResults.put(node.mName, request.getResultValue());
+				if (++mDoneCount < mNodes.size()) {
+					for (Node dependent : node.mDependents) {
+						if (--dependent.mRemainingDependencyCount == 0) {
+							mReadyNodes.offer(dependent);
+						}
+					}
+					drainReadyNodes();
+					return;
+				}
+				T composition;
+				try {
+					composition = mValueCompositor.apply(Collections.unmodifiableMap(mResults));
+				} catch (Exception e) {
+					concludeWithException(new RequestException(() -> String.format("Error composing result of dag request tagged %s", getTag()), e));
+					return;
+				}
+				if (!concludeDone(composition)) {
+					return;
+				}
+				Wnn.c(mTimeoutCheckTask, Task::cancel);
+				try {
+					mCallback.accept(composition);
+				} catch (Exception e) {
+					//ignore
+				}
+				return;
+			case Exception:
+				concludeWithException(new RequestException(() -> String.format("Node %s tagged %s encountered failure", node.mName, request.getTag()), request.getResultException()));
+				return;
+			case Timeout:
+				concludeWithException(new RequestException(() -> String.format("Node %s tagged %s timeout", node.mName, request.getTag())));
+				return;
+			default:
+				concludeWithException(new RequestException(() -> String.format("Node %s tagged %s cancel abnormally", node.mName, request.getTag())));
+		}
+	}
+
+	private void concludeWithException(Exception exception) {
+		if (!concludeException(exception)) {
+			return;
+		}
+		Wnn.c(mTimeoutCheckTask, Task::cancel);
+		cancelRunningNodes("failure");
+		try {
+			mCallback.onException(exception);
+		} catch (Exception e) {
+			//ignore
+		}
+	}
+
+	private void cancelRunningNodes(String reason) {
+		for (Request<?> request : mLaunchedRequests) {
+			if (request.isRequestRunning()) {
+				try {
+					request.cancel();
+				} catch (Exception e) {
+					Logger.printException(TAG, new RuntimeException(String.format("Error canceling node tagged %s for dag request tagged %s on %s, calling chain: %s", request.getTag(), getTag(), reason, request.generateCallChainInfo()), e));
+				}
+			}
+		}
+	}
+
+	@Override
+	public void cancel() {
+		if (!concludeStatus(RequestStatus.Canceled)) {
+			return;
+		}
+		Wnn.c(mTimeoutCheckTask, Task::cancel);
+		Exception exceptionCanceling = null;
+		for (Request<?> request : mLaunchedRequests) {
+			if (request.isRequestRunning()) {
+				try {
+					request.cancel();
+				} catch (Exception e) {
+					exceptionCanceling = e;
+				}
+			}
+		}
+		try {
+			mCallback.onCanceled();
+		} catch (Exception e) {
+			//ignore
+		}
+		if (exceptionCanceling != null) {
+			throw new RuntimeException(String.format("Error canceling dag request tagged %s, calling chain: %s", getTag(), generateCallChainInfo()), exceptionCanceling);
+		}
+	}
+
+	@Override
+	protected String generateCallingInfo() {
+		return String.format("(Dag Request) %s", getTag());
+	}
+
+	@Override
+	protected List<Request<?>> getChildRequests() {
+		return new ArrayList<>(mLaunchedRequests);
+	}
+
+	@Override
+	public String dumpCallingStatus() {
+		synchronized (mRequestLock) {
+			RequestStatus status = getStatus();
+			String content = "";
+			switch (status) {
+				case Pending:
+					content = String.format("Running: %sms remains", getTimeoutRemains());
+					break;
+				case Idle:
+				case Timeout:
+				case Canceled:
+					content = status.name();
+					break;
+				case Done:
+					content = String.format("Done: result {%s}", printResultValue());
+					break;
+				case Exception:
+					content = String.format("Exception: %s", Wnn.f(getResultException(), Exception::getMessage));
+					break;
+			}
+			List<String> nodeStatus = new ArrayList<>();
+			for (Node node : mNodes.values()) {
+				List<String> dependencies = new ArrayList<>();
+				for (Node dependency : node.mDependencies) {
+					dependencies.add(dependency.mName);
+				}
+				String title = String.format("(Node %s) after %s", node.mName, dependencies);
+				if (node.mRequest != null) {
+					nodeStatus.add(concatDumpTree(title, Collections.singletonList(node.mRequest.dumpCallingStatus())));
+				} else {
+					nodeStatus.add(String.format("%s:: %s", title, isRequestIdle() || isRequestRunning() ? "Waiting" : "Skipped"));
+				}
+			}
+			return concatDumpTree(String.format("%s:: %s", generateCallingInfo(), content), nodeStatus);
+		}
+	}
+
+	private class Node {
+		private final String mName;
+		private final Function<Map<String, Object>, Request<?>> mRequestGenerator;
+		private final List<Node> mDependencies = new ArrayList<>();
+		private final List<Node> mDependents = new ArrayList<>();
+		private int mRemainingDependencyCount;
+		private volatile Request<?> mRequest;
+
+		private Node(String name, Function<Map<String, Object>, Request<?>> requestGenerator) {
+			mName = name;
+			mRequestGenerator = requestGenerator;
+		}
+
+		private void launch() {
+			Map<String, Object> dependencyResults = new HashMap<>();
+			for (Node dependency : mDependencies) {
+				dependencyResults.put(dependency.mName, mResults.get(dependency.mName));
+			}
+			Request<?> request;
+			try {
+				request = mRequestGenerator.apply(Collections.unmodifiableMap(dependencyResults));
+				if (request == null) {
+					concludeWithException(new RuntimeException(String.format("Failed to generate request for node %s", mName)));
+					return;
+				}
+			} catch (Exception e) {
+				concludeWithException(new RequestException(() -> String.format("Error generating request for node %s", mName), e));
+				return;
+			}
+			mRequest = request;
+			mLaunchedRequests.add(request);
+			request.setTagSupplier(() -> String.format("%s-%s", getTag(), mName));
+			request.setupCaller(DagRequest.this);
+			request.setTaskScheduler(getTaskScheduler());
+			try {
+				launchRequest(request);
+				if (!isRequestRunning() && request.isRequestRunning()) {
+					//concluded by cancel or timeout while launching
+					request.cancel();
+				}
+			} catch (Exception e) {
+				if (!isRequestRunning()) {
+					//ignore
+					return;
+				}
+				concludeWithException(new RequestException(() -> String.format("Error launching node %s tagged %s", mName, request.getTag()), e));
+			}
+		}
+
+		private <V> void launchRequest(Request<V> request) {
+			request.launch(
+					new Callback<V>() {
+
+						private void handleResult() {
+							synchronized (mRequestLock) {
+								onNodeConcluded(Node.this);
+							}
+						}
+
+						@Override
+						public void accept(V ret) {
+							handleResult();
+						}
+
+						@Override
+						public void onCanceled() {
+							handleResult();
+						}
+
+						@Override
+						public void onException(Exception e) {
+							handleResult();
+						}
+
+						@Override
+						public void onTimeout() {
+							handleResult();
+						}
+					},
+					propagateDeadline(request, Request.TIMEOUT_UNLIMITED)
+			);
+		}
+	}
+}
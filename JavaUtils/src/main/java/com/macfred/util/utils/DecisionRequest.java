@@ -13,18 +13,18 @@ import java.util.Objects;
 
 public class DecisionRequest<T> extends Request<T> {
 	private final String TAG = DecisionRequest.class.getSimpleName();
-	private Task mTimeoutCheckTask;
+	private volatile Task mTimeoutCheckTask;
 	private Callback<T> mCallback;
 
-	private boolean mCancelingActionFlag;
-
 	private final List<Node<?>> mDecisionNodes = new ArrayList<>();
+	private volatile Node<?> mCurrentNode;
 
 	public <V> DecisionRequest(Request<V> initialNode, BiConsumer<Request<V>, DecisionMaker<T>> initialDecisionMakerHandler) {
 		Objects.requireNonNull(initialNode);
 		Objects.requireNonNull(initialDecisionMakerHandler);
 		Node<V> nextNode = new Node<>(initialNode, initialDecisionMakerHandler);
 		mDecisionNodes.add(nextNode);
+		mCurrentNode = nextNode;
 	}
 
 	@Override
@@ -34,30 +34,29 @@ public class DecisionRequest<T> extends Request<T> {
 				throw new RuntimeException(String.format("Launch a decision request tagged %s, which is in status %s", getTag(), getStatus()));
 			}
 			Objects.requireNonNull(callback);
-			mCallback = callback;
+			mCallback = dispatchCallback(callback);
 			setStatus(RequestStatus.Pending);
 			timeout = Math.max(timeout, Request.TIMEOUT_UNLIMITED);
 			setTimeout(timeout);
 			setLaunchTime(System.currentTimeMillis());
-			if (timeout > 0) {
+			if (timeout > 0 && !isDeadlineShared()) {
 				mTimeoutCheckTask = scheduleTaskDelayed(
 						() -> {
-							synchronized (mRequestLock) {
-								if (!isRequestRunning()) {
-									return;
-								}
-								setStatus(RequestStatus.Timeout);
-								Node currentNode = mDecisionNodes.get(mDecisionNodes.size() - 1);
-								try {
+							if (!concludeStatus(RequestStatus.Timeout)) {
+								return;
+							}
+							Node currentNode = mCurrentNode;
+							try {
+								if (currentNode.getStatus() == RequestStatus.Pending) {
 									currentNode.cancel();
-								} catch (Exception e) {
-									Logger.printException(TAG, new RuntimeException(String.format("Error canceling node tagged %s for decision request tagged %s when reaching timeout, calling chain: %s", currentNode.getTag(), getTag(), generateCallChainInfo()), e));
-								}
-								try {
-									mCallback.onTimeout();
-								} catch (Exception e) {
-									//ignore
 								}
+							} catch (Exception e) {
+								Logger.printException(TAG, new RuntimeException(String.format("Error canceling node tagged %s for decision request tagged %s when reaching timeout, calling chain: %s", currentNode.getTag(), getTag(), generateCallChainInfo()), e));
+							}
+							try {
+								mCallback.onTimeout();
+							} catch (Exception e) {
+								//ignore
 							}
 						},
 						timeout
@@ -72,19 +71,20 @@ public class DecisionRequest<T> extends Request<T> {
 				try {
 					node.execute(getTimeoutRemains());
 				} catch (Exception e) {
-					throw new RuntimeException(String.format("Error executing initial node tagged %s", node.mNodeRequest.getTag()), e);
+					throw new RequestException(() -> String.format("Error executing initial node tagged %s", node.mNodeRequest.getTag()), e);
 				}
 			} catch (Exception e) {
-				Exception exp = new RuntimeException(String.format("Error launching decision request tagged: %s", getTag()), e);
+				Exception exp = new RequestException(() -> String.format("Error launching decision request tagged: %s", getTag()), e);
 				if (!isRequestRunning()) {
 					Logger.printException(TAG, exp);
 					return;
 				}
+				if (!concludeException(exp)) {
+					return;
+				}
 				Wnn.c(mTimeoutCheckTask, Task::cancel);
-				setResultException(exp);
-				setStatus(RequestStatus.Exception);
 				try {
-					callback.onException(exp);
+					mCallback.onException(exp);
 				} catch (Exception ee) {
 					//ignore
 				}
@@ -94,26 +94,26 @@ public class DecisionRequest<T> extends Request<T> {
 
 	@Override
 	public void cancel() {
-		synchronized (mRequestLock) {
-			if (!isRequestRunning()) {
-				return;
-			}
-			Node currentNode = mDecisionNodes.get(mDecisionNodes.size() - 1);
-			mCancelingActionFlag = true;
-			try {
+		if (!concludeStatus(RequestStatus.Canceled)) {
+			return;
+		}
+		Wnn.c(mTimeoutCheckTask, Task::cancel);
+		Node currentNode = mCurrentNode;
+		Exception exceptionCanceling = null;
+		try {
+			if (currentNode.getStatus() == RequestStatus.Pending) {
 				currentNode.cancel();
-			} catch (Exception e) {
-				throw new RuntimeException(String.format("Error canceling node tagged %s when cancel decision request tagged %s", currentNode.getTag(), getTag()), e);
-			} finally {
-				mCancelingActionFlag = false;
-			}
-			Wnn.c(mTimeoutCheckTask, Task::cancel);
-			setStatus(RequestStatus.Canceled);
-			try {
-				mCallback.onCanceled();
-			} catch (Exception e) {
-				//ignore
 			}
+		} catch (Exception e) {
+			exceptionCanceling = e;
+		}
+		try {
+			mCallback.onCanceled();
+		} catch (Exception e) {
+			//ignore
+		}
+		if (exceptionCanceling != null) {
+			throw new RequestException(() -> String.format("Error canceling node tagged %s when cancel decision request tagged %s", currentNode.getTag(), getTag()), exceptionCanceling);
 		}
 	}
 
@@ -129,6 +129,7 @@ public class DecisionRequest<T> extends Request<T> {
 					}
 					Node<W> nextNode = new Node<>(currentNode, nextDecisionMakerHandler);
 					mDecisionNodes.add(nextNode);
+					mCurrentNode = nextNode;
 					DecisionRequest.this.scheduleTaskDelayed(
 							() -> {
 								synchronized (mRequestLock) {
@@ -141,13 +142,14 @@ public class DecisionRequest<T> extends Request<T> {
 									try {
 										nextNode.execute(getTimeoutRemains());
 									} catch (Exception e) {
-										Exception exp = new RuntimeException(String.format("Error launch node tagged %s after node tagged %s", currentNode.getTag(), Node.this.getTag()), e);
+										Exception exp = new RequestException(() -> String.format("Error launch node tagged %s after node tagged %s", currentNode.getTag(), Node.this.getTag()), e);
 										if (!isRequestRunning()) {
 											Logger.printException(TAG, exp);
 											return;
 										}
-										setStatus(RequestStatus.Exception);
-										setResultException(exp);
+										if (!concludeException(exp)) {
+											return;
+										}
 										Wnn.c(mTimeoutCheckTask, Task::cancel);
 										try {
 											mCallback.onException(exp);
@@ -167,8 +169,10 @@ public class DecisionRequest<T> extends Request<T> {
 					if (!isRequestRunning()) {
 						return;
 					}
+					if (!concludeStatus(result)) {
+						return;
+					}
 					Wnn.c(mTimeoutCheckTask, Task::cancel);
-					setStatus(result);
 					try {
 						callbackHandler.accept(mCallback);
 					} catch (Exception e) {
@@ -179,37 +183,45 @@ public class DecisionRequest<T> extends Request<T> {
 
 			@Override
 			public void accept(T ret) {
-				handelResult(
-						RequestStatus.Done,
-						callback -> {
-							setResultValue(ret);
-							callback.accept(ret);
-						}
-				);
+				synchronized (mRequestLock) {
+					if (!concludeDone(ret)) {
+						return;
+					}
+					Wnn.c(mTimeoutCheckTask, Task::cancel);
+					try {
+						mCallback.accept(ret);
+					} catch (Exception e) {
+						//ignore
+					}
+				}
+			}
+
+			private void handelException(Exception exp) {
+				synchronized (mRequestLock) {
+					if (!isRequestRunning()) {
+						return;
+					}
+					if (!concludeException(exp)) {
+						return;
+					}
+					Wnn.c(mTimeoutCheckTask, Task::cancel);
+					try {
+						mCallback.onException(exp);
+					} catch (Exception e) {
+						//ignore
+					}
+				}
 			}
 
 			@Override
 			public void onCanceled() {
-				if (mCancelingActionFlag) {
-					return;
-				}
-				Exception e = new RuntimeException(String.format("Decision node tagged %s cancel abnormally", Node.this.getTag()));
-				handelResult(RequestStatus.Exception,
-						callback -> {
-							Exception exp = new RuntimeException(String.format("Error executing decision request tagged %s", DecisionRequest.this.getTag()), e);
-							setResultException(exp);
-							callback.onException(exp);
-						});
+				Exception e = new RequestException(() -> String.format("Decision node tagged %s cancel abnormally", Node.this.getTag()));
+				handelException(new RequestException(() -> String.format("Error executing decision request tagged %s", DecisionRequest.this.getTag()), e));
 			}
 
 			@Override
 			public void onException(Exception e) {
-				handelResult(RequestStatus.Exception,
-						callback -> {
-							Exception exp = new RuntimeException(String.format("Error executing node tagged %s", Node.this.getTag()), e);
-							setResultException(exp);
-							callback.onException(exp);
-						});
+				handelException(new RequestException(() -> String.format("Error executing node tagged %s", Node.this.getTag()), e));
 			}
 
 			@Override
@@ -228,10 +240,7 @@ public class DecisionRequest<T> extends Request<T> {
 			if (requestStatus != RequestStatus.Idle) {
 				throw new RuntimeException(String.format("Execute node which is in status %s", requestStatus));
 			}
-			List<Request> callingChain = new ArrayList<>();
-			callingChain.addAll(DecisionRequest.this.getCallingChain());
-			callingChain.add(DecisionRequest.this);
-			mNodeRequest.setupCallingChain(callingChain);
+			mNodeRequest.setupCaller(DecisionRequest.this);
 			mNodeRequest.setTaskScheduler(DecisionRequest.this.getTaskScheduler());
 			mNodeRequest.launch(
 					new Callback<V>() {
@@ -247,13 +256,14 @@ public class DecisionRequest<T> extends Request<T> {
 								try {
 									mDecisionMakerHandler.accept(mNodeRequest, mDecisionMaker);
 								} catch (Exception e) {
-									Exception exp = new RuntimeException(String.format("Error making decision on decision node tagged %s", Node.this.getTag()), e);
+									Exception exp = new RequestException(() -> String.format("Error making decision on decision node tagged %s", Node.this.getTag()), e);
 									if (!isRequestRunning()) {
 										Logger.printException(TAG, exp);
 										return;
 									}
-									setStatus(RequestStatus.Exception);
-									setResultException(exp);
+									if (!concludeException(exp)) {
+										return;
+									}
 									Wnn.c(mTimeoutCheckTask, Task::cancel);
 									if (mCallback != null) {
 										try {
@@ -286,8 +296,12 @@ public class DecisionRequest<T> extends Request<T> {
 							handleDecision();
 						}
 					},
-					timeout
+					DecisionRequest.this.propagateDeadline(mNodeRequest, timeout)
 			);
+			if (!isRequestRunning() && mNodeRequest.isRequestRunning()) {
+				//concluded by cancel or timeout while launching
+				mNodeRequest.cancel();
+			}
 		}
 
 		private void cancel() {
@@ -321,6 +335,17 @@ public class DecisionRequest<T> extends Request<T> {
 		return String.format("(Decision Request) %s", getTag());
 	}
 
+	@Override
+	protected List<Request<?>> getChildRequests() {
+		synchronized (mRequestLock) {
+			List<Request<?>> childRequests = new ArrayList<>();
+			for (Node<?> node : mDecisionNodes) {
+				childRequests.add(node.mNodeRequest);
+			}
+			return childRequests;
+		}
+	}
+
 	@Override
 	public String dumpCallingStatus() {
 		synchronized (mRequestLock) {
@@ -372,7 +397,7 @@ public class DecisionRequest<T> extends Request<T> {
 					decisionMaker.doNextDecision(nextDecision.getFirst(), nextDecision.getSecond());
 					break;
 				default:
-					decisionMaker.onException(new RuntimeException(String.format("Unsupported: %s", status)));
+					decisionMaker.onException(new RequestException(() -> String.format("Unsupported: %s", status)));
 					break;
 			}
 		};
@@ -399,7 +424,7 @@ public class DecisionRequest<T> extends Request<T> {
 					decisionMaker.accept(decision.apply(request));
 					break;
 				default:
-					decisionMaker.onException(new RuntimeException(String.format("Unsupported: %s", status)));
+					decisionMaker.onException(new RequestException(() -> String.format("Unsupported: %s", status)));
 					break;
 			}
 		};
@@ -0,0 +1,53 @@
+package com.macfred.util.utils;
+
+import com.macfred.util.Logger;
+import com.macfred.util.function.Callback;
+
+import java.util.concurrent.Executor;
+
+class DispatchingCallback<T> implements Callback<T> {
+	private static final String TAG = DispatchingCallback.class.getSimpleName();
+	private final Callback<T> mDelegate;
+	private final Executor mExecutor;
+
+	DispatchingCallback(Callback<T> delegate, Executor executor) {
+		mDelegate = delegate;
+		mExecutor = executor;
+	}
+
+	@Override
+	public void accept(T t) {
+		dispatch(() -> mDelegate.accept(t));
+	}
+
+	@Override
+	public void onCanceled() {
+		dispatch(mDelegate::onCanceled);
+	}
+
+	@Override
+	public void onException(Exception e) {
+		dispatch(() -> mDelegate.onException(e));
+	}
+
+	@Override
+	public void onTimeout() {
+		dispatch(mDelegate::onTimeout);
+	}
+
+	private void dispatch(Runnable action) {
+		Runnable guardedAction = () -> {
+			try {
+				action.run();
+			} catch (Exception e) {
+				//ignore
+			}
+		};
+		try {
+			mExecutor.execute(guardedAction);
+		} catch (Exception e) {
+			Logger.printException(TAG, new RuntimeException("Callback executor rejected callback, invoking it on current thread", e));
+			guardedAction.run();
+		}
+	}
+}
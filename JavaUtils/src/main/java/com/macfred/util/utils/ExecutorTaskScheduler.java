@@ -0,0 +1,73 @@
+package com.macfred.util.utils;
+
+import com.macfred.util.Logger;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link Request.TaskScheduler} backed by a {@link ScheduledThreadPoolExecutor}.
+ * Canceled tasks are purged from the work queue immediately, and a slow task only occupies one of the worker threads.
+ */
+public class ExecutorTaskScheduler implements Request.TaskScheduler {
+	private static final String TAG = ExecutorTaskScheduler.class.getSimpleName();
+	private final ScheduledThreadPoolExecutor mExecutor;
+
+	public ExecutorTaskScheduler(int threadCount) {
+		this(threadCount, TAG);
+	}
+
+	public ExecutorTaskScheduler(int threadCount, String tag) {
+		this(threadCount, newThreadFactory(tag));
+	}
+
+	public ExecutorTaskScheduler(int threadCount, ThreadFactory threadFactory) {
+		if (threadCount <= 0) {
+			throw new IllegalArgumentException(String.format("Illegal thread count: %s", threadCount));
+		}
+		mExecutor = new ScheduledThreadPoolExecutor(threadCount, threadFactory);
+		mExecutor.setRemoveOnCancelPolicy(true);
+		mExecutor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+	}
+
+	@Override
+	public Request.Task scheduleTask(Runnable action, long time) {
+		ScheduledFuture<?> future = mExecutor.schedule(
+				() -> {
+					try {
+						action.run();
+					} catch (Throwable t) {
+						//the scheduled future would swallow an error silently
+						Logger.printException(TAG, new RuntimeException("Error executing task", t));
+					}
+				},
+				Math.max(time - System.currentTimeMillis(), 0),
+				TimeUnit.MILLISECONDS
+		);
+		return () -> future.cancel(false);
+	}
+
+	public int getThreadCount() {
+		return mExecutor.getCorePoolSize();
+	}
+
+	public int getQueuedTaskCount() {
+		return mExecutor.getQueue().size();
+	}
+
+	public void shutdown() {
+		mExecutor.shutdown();
+	}
+
+	private static ThreadFactory newThreadFactory(String tag) {
+		AtomicInteger threadIndex = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, String.format("%s-%s", tag, threadIndex.getAndIncrement()));
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+}
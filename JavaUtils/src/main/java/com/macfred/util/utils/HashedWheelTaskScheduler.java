@@ -0,0 +1,250 @@
+package com.macfred.util.utils;
+
+import com.macfred.util.Logger;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed timing wheel implementation of {@link Request.TaskScheduler}.
+ * Scheduling and canceling are O(1), canceled tasks are unlinked from the wheel on the next tick
+ * instead of lingering until their deadline. Tasks are fired with a precision of one tick.
+ */
+public class HashedWheelTaskScheduler implements Request.TaskScheduler {
+	private static final String TAG = HashedWheelTaskScheduler.class.getSimpleName();
+	public static final long DEFAULT_TICK_DURATION = 10;
+	public static final int DEFAULT_WHEEL_SIZE = 512;
+	private static final int MAX_TRANSFER_PER_TICK = 100000;
+
+	private final long mTickDuration;
+	private final Bucket[] mWheel;
+	private final int mMask;
+	private final long mStartTime = System.nanoTime();
+	private final Queue<WheelTask> mPendingTasks = new ConcurrentLinkedQueue<>();
+	private final Queue<WheelTask> mImmediateTasks = new ConcurrentLinkedQueue<>();
+	private final Queue<WheelTask> mCanceledTasks = new ConcurrentLinkedQueue<>();
+	private final Thread mWorkerThread;
+	private volatile boolean mShutdown;
+	private long mTick;
+
+	public HashedWheelTaskScheduler() {
+		this(DEFAULT_TICK_DURATION, DEFAULT_WHEEL_SIZE);
+	}
+
+	public HashedWheelTaskScheduler(long tickDuration, int wheelSize) {
+		this(tickDuration, wheelSize, TAG);
+	}
+
+	public HashedWheelTaskScheduler(long tickDuration, int wheelSize, String name) {
+		if (tickDuration <= 0) {
+			throw new IllegalArgumentException(String.format("Illegal tick duration: %s", tickDuration));
+		}
+		if (wheelSize <= 0 || wheelSize > (1 << 30)) {
+			throw new IllegalArgumentException(String.format("Illegal wheel size: %s", wheelSize));
+		}
+		int normalizedWheelSize = 1;
+		while (normalizedWheelSize < wheelSize) {
+			normalizedWheelSize <<= 1;
+		}
+		mTickDuration = TimeUnit.MILLISECONDS.toNanos(tickDuration);
+		mWheel = new Bucket[normalizedWheelSize];
+		for (int i = 0; i < mWheel.length; i++) {
+			mWheel[i] = new Bucket();
+		}
+		mMask = normalizedWheelSize - 1;
+		mWorkerThread = new Thread(this::runWorker, name);
+		mWorkerThread.setDaemon(true);
+		mWorkerThread.start();
+	}
+
+	@Override
+	public Request.Task scheduleTask(Runnable action, long time) {
+		if (mShutdown) {
+			throw new IllegalStateException(String.format("Schedule task on %s which has been shut down", mWorkerThread.getName()));
+		}
+		long delay = time - System.currentTimeMillis();
+		long deadline = System.nanoTime() - mStartTime + TimeUnit.MILLISECONDS.toNanos(Math.max(delay, 0));
+		if (delay > 0 && deadline < 0) {
+			//toNanos saturates for far-future delays, adding the elapsed time would wrap the deadline into the past
+			deadline = Long.MAX_VALUE;
+		}
+		WheelTask task = new WheelTask(action, deadline);
+		if (delay <= 0) {
+			mImmediateTasks.offer(task);
+			LockSupport.unpark(mWorkerThread);
+		} else {
+			mPendingTasks.offer(task);
+		}
+		return task;
+	}
+
+	public long getTickDuration() {
+		return TimeUnit.NANOSECONDS.toMillis(mTickDuration);
+	}
+
+	public int getWheelSize() {
+		return mWheel.length;
+	}
+
+	public void shutdown() {
+		mShutdown = true;
+		LockSupport.unpark(mWorkerThread);
+	}
+
+	private void runWorker() {
+		while (!mShutdown) {
+			runImmediateTasks();
+			long now = System.nanoTime() - mStartTime;
+			long nextTickTime = (mTick + 1) * mTickDuration;
+			if (now < nextTickTime) {
+				LockSupport.parkNanos(this, nextTickTime - now);
+				continue;
+			}
+			processCanceledTasks();
+			transferPendingTasks();
+			mWheel[(int) (mTick & mMask)].expire();
+			mTick++;
+		}
+		mPendingTasks.clear();
+		mImmediateTasks.clear();
+		mCanceledTasks.clear();
+	}
+
+	private void runImmediateTasks() {
+		WheelTask task;
+		while ((task = mImmediateTasks.poll()) != null) {
+			task.expire();
+		}
+	}
+
+	private void processCanceledTasks() {
+		WheelTask task;
+		while ((task = mCanceledTasks.poll()) != null) {
+			Bucket bucket = task.mBucket;
+			if (bucket != null) {
+				bucket.remove(task);
+			}
+		}
+	}
+
+	private void transferPendingTasks() {
+		for (int i = 0; i < MAX_TRANSFER_PER_TICK; i++) {
+			WheelTask task = mPendingTasks.poll();
+			if (task == null) {
+				return;
+			}
+			if (task.isCanceled()) {
+				continue;
+			}
+			long calculatedTick = task.mDeadline / mTickDuration;
+			task.mRemainingRounds = (calculatedTick - mTick) / mWheel.length;
+			long tick = Math.max(calculatedTick, mTick);
+			mWheel[(int) (tick & mMask)].add(task);
+		}
+	}
+
+	private final class WheelTask implements Request.Task {
+		private static final int STATE_INIT = 0;
+		private static final int STATE_CANCELED = 1;
+		private static final int STATE_EXPIRED = 2;
+
+		private volatile Runnable mAction;
+		private final long mDeadline;
+		volatile int mState = STATE_INIT;
+		private long mRemainingRounds;
+		private Bucket mBucket;
+		private WheelTask mPrev;
+		private WheelTask mNext;
+
+		private WheelTask(Runnable action, long deadline) {
+			mAction = action;
+			mDeadline = deadline;
+		}
+
+		@Override
+		public boolean cancel() {
+			if (!STATE_UPDATER.compareAndSet(this, STATE_INIT, STATE_CANCELED)) {
+				return false;
+			}
+			mAction = null;
+			mCanceledTasks.offer(this);
+			return true;
+		}
+
+		private boolean isCanceled() {
+			return mState == STATE_CANCELED;
+		}
+
+		private void expire() {
+			if (!STATE_UPDATER.compareAndSet(this, STATE_INIT, STATE_EXPIRED)) {
+				return;
+			}
+			Runnable action = mAction;
+			mAction = null;
+			try {
+				action.run();
+			} catch (Throwable t) {
+				Logger.printException(TAG, new RuntimeException("Error executing task", t));
+			}
+		}
+	}
+
+	private static final AtomicIntegerFieldUpdater<WheelTask> STATE_UPDATER = AtomicIntegerFieldUpdater.newUpdater(WheelTask.class, "mState");
+
+	private final class Bucket {
+		private WheelTask mHead;
+		private WheelTask mTail;
+
+		private void add(WheelTask task) {
+			task.mBucket = this;
+			if (mHead == null) {
+				mHead = mTail = task;
+			} else {
+				mTail.mNext = task;
+				task.mPrev = mTail;
+				mTail = task;
+			}
+		}
+
+		private void expire() {
+			WheelTask task = mHead;
+			while (task != null) {
+				WheelTask next = task.mNext;
+				if (task.isCanceled()) {
+					remove(task);
+				} else if (task.mRemainingRounds <= 0) {
+					remove(task);
+					task.expire();
+				} else {
+					task.mRemainingRounds--;
+				}
+				task = next;
+			}
+		}
+
+		private void remove(WheelTask task) {
+			if (task.mBucket != this) {
+				return;
+			}
+			WheelTask next = task.mNext;
+			if (task.mPrev != null) {
+				task.mPrev.mNext = next;
+			}
+			if (next != null) {
+				next.mPrev = task.mPrev;
+			}
+			if (task == mHead) {
+				mHead = next;
+			}
+			if (task == mTail) {
+				mTail = task.mPrev;
+			}
+			task.mPrev = null;
+			task.mNext = null;
+			task.mBucket = null;
+		}
+	}
+}
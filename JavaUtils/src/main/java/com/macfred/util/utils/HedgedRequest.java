@@ -0,0 +1,383 @@
+package com.macfred.util.utils;
+
+import com.macfred.util.Logger;
+import com.macfred.util.function.Callback;
+import com.macfred.util.function.Supplier;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Launch an attempt supplied by the attempt supplier, and launch a backup attempt when the running ones have not concluded
+ * within the hedge delay. The first attempt done wins, the others are canceled.
+ */
+public class HedgedRequest<T> extends Request<T> {
+	private static final String TAG = HedgedRequest.class.getSimpleName();
+	public static final int DEFAULT_MAX_ATTEMPTS = 2;
+	private final List<Request<T>> mAttempts = new CopyOnWriteArrayList<>();
+	private final Supplier<Request<T>> mAttemptSupplier;
+	private final HedgeDelayPolicy mHedgeDelayPolicy;
+	private final int mMaxAttempts;
+	private volatile Task mTimeoutCheckTask;
+	private volatile Task mHedgeTask;
+	private Callback<T> mCallback;
+
+	public HedgedRequest(Supplier<Request<T>> attemptSupplier, HedgeDelayPolicy hedgeDelayPolicy) {
+		this(attemptSupplier, hedgeDelayPolicy, DEFAULT_MAX_ATTEMPTS);
+	}
+
+	public HedgedRequest(Supplier<Request<T>> attemptSupplier, HedgeDelayPolicy hedgeDelayPolicy, int maxAttempts) {
+		if (maxAttempts <= 0) {
+			throw new IllegalArgumentException(String.format("Illegal max attempts: %s", maxAttempts));
+		}
+		mAttemptSupplier = Objects.requireNonNull(attemptSupplier);
+		mHedgeDelayPolicy = Objects.requireNonNull(hedgeDelayPolicy);
+		mMaxAttempts = maxAttempts;
+	}
+
+	@Override
+	public void launch(Callback<T> callback, long timeout) {
+		synchronized (mRequestLock) {
+			if (!isRequestIdle()) {
+				throw new RuntimeException(String.format("Launch a hedged request tagged %s, which is in status %s", getTag(), getStatus()));
+			}
+			Objects.requireNonNull(callback);
+			mCallback = dispatchCallback(callback);
+			setStatus(RequestStatus.Pending);
+			timeout = Math.max(timeout, Request.TIMEOUT_UNLIMITED);
+			setTimeout(timeout);
+			setLaunchTime(System.currentTimeMillis());
+			if (timeout > 0 && !isDeadlineShared()) {
+				mTimeoutCheckTask = scheduleTaskDelayed(
+						() -> {
+							if (!concludeStatus(RequestStatus.Timeout)) {
+								return;
+							}
+							Wnn.c(mHedgeTask, Task::cancel);
+							cancelRunningAttempts("reaching timeout");
+							try {
+								mCallback.onTimeout();
+							} catch (Exception e) {
+								//ignore
+							}
+						},
+						timeout
+				);
+			}
+			try {
+				onLaunch();
+				launchAttempt();
+			} catch (Exception e) {
+				concludeWithException(new RequestException(() -> String.format("Error launching hedged request tagged: %s", getTag()), e));
+			}
+		}
+	}
+
+	private void launchAttempt() {
+		Wnn.c(mHedgeTask, Task::cancel);
+		Request<T> attempt;
+		try {
+			attempt = mAttemptSupplier.get();
+			if (attempt == null) {
+				concludeWithException(new RuntimeException("Failed to generate attempt"));
+				return;
+			}
+		} catch (Exception e) {
+			concludeWithException(e);
+			return;
+		}
+		int attemptIndex = mAttempts.size();
+		attempt.setTagSupplier(() -> String.format("%s-attempt-%s", getTag(), attemptIndex));
+		mAttempts.add(attempt);
+		attempt.setupCaller(this);
+		attempt.setTaskScheduler(getTaskScheduler());
+		long timeout = propagateDeadline(attempt, Request.TIMEOUT_UNLIMITED);
+		try {
+			attempt.launch(
+					new Callback<T>() {
+
+						private void handleResult() {
+							synchronized (mRequestLock) {
+								if (!isRequestRunning() || attempt.isRequestRunning()) {
+									return;
+								}
+								if (attempt.getStatus() == RequestStatus.Done) {
+									T result = attempt.getResultValue();
+									if (!concludeDone(result)) {
+										return;
+									}
+									Wnn.c(mTimeoutCheckTask, Task::cancel);
+									Wnn.c(mHedgeTask, Task::cancel);
+									mHedgeDelayPolicy.onAttemptDone(System.currentTimeMillis() - getLaunchTime());
+									cancelRunningAttempts("another attempt was done");
+									try {
+										mCallback.accept(result);
+									} catch (Exception ee) {
+										//ignore
+									}
+									return;
+								}
+								if (mAttempts.size() < mMaxAttempts) {
+									//hedge immediately instead of waiting for the delay
+									launchAttempt();
+									return;
+								}
+								for (Request<T> other : mAttempts) {
+									if (other.isRequestRunning()) {
+										return;
+									}
+								}
+								Exception e;
+								RequestStatus attemptStatus = attempt.getStatus();
+								switch (attemptStatus) {
+									case Exception:
+										e = new RequestException(() -> String.format("Attempt tagged %s encountered failure", attempt.getTag()), attempt.getResultException());
+										break;
+									case Timeout:
+										e = new RequestException(() -> String.format("Attempt tagged %s timeout", attempt.getTag()));
+										break;
+									case Canceled:
+										e = new RequestException(() -> String.format("Attempt tagged %s cancel abnormally", attempt.getTag()));
+										break;
+									default:
+										e = new RequestException(() -> String.format("Attempt tagged %s in abnormal status: %s", attempt.getTag(), attemptStatus));
+										break;
+								}
+								concludeWithException(e);
+							}
+						}
+
+						@Override
+						public void accept(T ret) {
+							handleResult();
+						}
+
+						@Override
+						public void onCanceled() {
+							handleResult();
+						}
+
+						@Override
+						public void onException(Exception e) {
+							handleResult();
+						}
+
+						@Override
+						public void onTimeout() {
+							handleResult();
+						}
+					},
+					timeout
+			);
+		} catch (Exception e) {
+			concludeWithException(new RequestException(() -> String.format("Error launching attempt tagged %s", attempt.getTag()), e));
+			return;
+		}
+		if (!isRequestRunning()) {
+			if (attempt.isRequestRunning()) {
+				//concluded by cancel or timeout while launching
+				attempt.cancel();
+			}
+			return;
+		}
+		if (attempt.isRequestRunning() && mAttempts.size() < mMaxAttempts) {
+			long hedgeDelay = mHedgeDelayPolicy.getHedgeDelay();
+			if (hedgeDelay >= 0) {
+				mHedgeTask = scheduleTaskDelayed(
+						() -> {
+							synchronized (mRequestLock) {
+								if (!isRequestRunning() || mAttempts.size() >= mMaxAttempts) {
+									return;
+								}
+								launchAttempt();
+							}
+						},
+						hedgeDelay
+				);
+			}
+		}
+	}
+
+	private void concludeWithException(Exception exception) {
+		if (!concludeException(exception)) {
+			return;
+		}
+		Wnn.c(mTimeoutCheckTask, Task::cancel);
+		Wnn.c(mHedgeTask, Task::cancel);
+		cancelRunningAttempts("failure");
+		try {
+			mCallback.onException(exception);
+		} catch (Exception e) {
+			//ignore
+		}
+	}
+
+	private void cancelRunningAttempts(String reason) {
+		for (Request<T> attempt : mAttempts) {
+			if (attempt.isRequestRunning()) {
+				try {
+					attempt.cancel();
+				} catch (Exception e) {
+					Logger.printException(TAG, new RuntimeException(String.format("Error canceling attempt tagged %s for hedged request tagged %s on %s, calling chain: %s", attempt.getTag(), getTag(), reason, attempt.generateCallChainInfo()), e));
+				}
+			}
+		}
+	}
+
+	@Override
+	public void cancel() {
+		if (!concludeStatus(RequestStatus.Canceled)) {
+			return;
+		}
+		Wnn.c(mTimeoutCheckTask, Task::cancel);
+		Wnn.c(mHedgeTask, Task::cancel);
+		Exception exceptionCanceling = null;
+		for (Request<T> attempt : mAttempts) {
+			if (attempt.isRequestRunning()) {
+				try {
+					attempt.cancel();
+				} catch (Exception e) {
+					exceptionCanceling = e;
+				}
+			}
+		}
+		try {
+			mCallback.onCanceled();
+		} catch (Exception e) {
+			//ignore
+		}
+		if (exceptionCanceling != null) {
+			throw new RuntimeException(String.format("Error canceling hedged request tagged %s, calling chain: %s", getTag(), generateCallChainInfo()), exceptionCanceling);
+		}
+	}
+
+	public int getMaxAttempts() {
+		return mMaxAttempts;
+	}
+
+	public int getAttemptCount() {
+		return mAttempts.size();
+	}
+
+	@Override
+	protected String generateCallingInfo() {
+		return String.format("(Hedged Request) %s", getTag());
+	}
+
+	@Override
+	protected List<Request<?>> getChildRequests() {
+		return new ArrayList<>(mAttempts);
+	}
+
+	@Override
+	public String dumpCallingStatus() {
+		synchronized (mRequestLock) {
+			RequestStatus status = getStatus();
+			String content = "";
+			switch (status) {
+				case Pending:
+					content = String.format("Running: %sms remains", getTimeoutRemains());
+					break;
+				case Idle:
+				case Timeout:
+				case Canceled:
+					content = status.name();
+					break;
+				case Done:
+					content = String.format("Done: result {%s}", printResultValue());
+					break;
+				case Exception:
+					content = String.format("Exception: %s", Wnn.f(getResultException(), Exception::getMessage));
+					break;
+			}
+			List<String> subActionStatus = new ArrayList<>();
+			for (Request<?> subAction : mAttempts) {
+				subActionStatus.add(subAction.dumpCallingStatus());
+			}
+			return concatDumpTree(String.format("%s:: %s", generateCallingInfo(), content), subActionStatus);
+		}
+	}
+
+	public interface HedgeDelayPolicy {
+
+		/**
+		 * @return delay in milliseconds before launching the next attempt, negative to disable hedging
+		 */
+		long getHedgeDelay();
+
+		/**
+		 * @param latency milliseconds from the launch of the hedged request, which is the launch of its first attempt, until an
+		 *                attempt was done. A winning backup still reports the whole wait, latencies of attempts cut off by
+		 *                hedging would otherwise never be sampled and drag the delay down.
+		 */
+		default void onAttemptDone(long latency) {
+
+		}
+
+		static HedgeDelayPolicy fixed(long delay) {
+			return () -> delay;
+		}
+
+		/**
+		 * Hedge at the given percentile of the latencies observed by the requests sharing this policy.
+		 */
+		static HedgeDelayPolicy percentile(double percentile, int sampleSize, long initialDelay) {
+			return new PercentileHedgeDelayPolicy(percentile, sampleSize, initialDelay);
+		}
+	}
+
+	public static class PercentileHedgeDelayPolicy implements HedgeDelayPolicy {
+		private final double mPercentile;
+		private final long[] mSamples;
+		private final long mInitialDelay;
+		private final int mRefreshInterval;
+		private int mSampleCount;
+		private int mNextSampleIndex;
+		private int mSamplesSinceRefresh;
+		private long mHedgeDelay;
+
+		public PercentileHedgeDelayPolicy(double percentile, int sampleSize, long initialDelay) {
+			if (percentile <= 0 || percentile > 100) {
+				throw new IllegalArgumentException(String.format("Illegal percentile: %s", percentile));
+			}
+			if (sampleSize <= 0) {
+				throw new IllegalArgumentException(String.format("Illegal sample size: %s", sampleSize));
+			}
+			mPercentile = percentile;
+			mSamples = new long[sampleSize];
+			mInitialDelay = initialDelay;
+			mRefreshInterval = Math.max(sampleSize / 16, 1);
+			mHedgeDelay = initialDelay;
+		}
+
+		@Override
+		public synchronized long getHedgeDelay() {
+			return mHedgeDelay;
+		}
+
+		@Override
+		public synchronized void onAttemptDone(long latency) {
+			mSamples[mNextSampleIndex] = latency;
+			mNextSampleIndex = (mNextSampleIndex + 1) % mSamples.length;
+			mSampleCount = Math.min(mSampleCount + 1, mSamples.length);
+			if (++mSamplesSinceRefresh < mRefreshInterval) {
+				return;
+			}
+			mSamplesSinceRefresh = 0;
+			long[] sorted = Arrays.copyOf(mSamples, mSampleCount);
+			Arrays.sort(sorted);
+			int index = (int) Math.ceil(mPercentile / 100 * sorted.length) - 1;
+			mHedgeDelay = sorted[Math.max(Math.min(index, sorted.length - 1), 0)];
+		}
+
+		public synchronized void reset() {
+			mSampleCount = 0;
+			mNextSampleIndex = 0;
+			mSamplesSinceRefresh = 0;
+			mHedgeDelay = mInitialDelay;
+		}
+	}
+}
@@ -4,25 +4,187 @@ import com.macfred.util.Logger;
 import com.macfred.util.function.Callback;
 import com.macfred.util.function.Supplier;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class LoopRequest<T> extends Request<T> {
 	private final String TAG = LoopRequest.class.getSimpleName();
-	private final List<Request<T>> mLoops = new ArrayList<>();
+	private final Deque<Request<T>> mLoops = new ArrayDeque<>();
+	private final long[] mDroppedLoopCounts = new long[RequestStatus.values().length];
 	private final Supplier<Request<T>> mLoopSupplier;
-	private Task mTimeoutCheckTask;
+	private final Deque<Request<T>> mInFlightLoops = new ConcurrentLinkedDeque<>();
+	private volatile Task mTimeoutCheckTask;
 	private Callback<T> mCallback;
-	private boolean mCancelingActionFlag;
 	private long mSingleLooperTimeout;
 	private boolean mIgnoreException;
+	private final List<Worker> mWorkers = new ArrayList<>();
+	private final Set<Task> mDelayTasks = Collections.newSetFromMap(new ConcurrentHashMap<>());
+	private DelayPolicy mDelayPolicy;
+	private IterationListener<T> mIterationListener;
+	private int mPrefetchDepth = 1;
+	private int mWorkerCount;
+	private int mHistoryLimit;
+	private long mLoopCount;
+	private long mDroppedLoopCount;
+	private boolean mDelivering;
+	private boolean mRedeliver;
 
-	private void doNextLoop() {
+	private void deliverLoops() {
+		if (mDelivering) {
+			mRedeliver = true;
+			return;
+		}
+		mDelivering = true;
+		try {
+			do {
+				mRedeliver = false;
+				if (mWorkers.isEmpty()) {
+					Request<T> loop;
+					while (isRequestRunning() && (loop = mInFlightLoops.peekFirst()) != null && !loop.isRequestRunning()) {
+						mInFlightLoops.pollFirst();
+						if (deliverLoop(loop)) {
+							delayNextLoop(loop, null);
+						}
+					}
+					trimHistory();
+					while (isRequestRunning() && mInFlightLoops.size() + mDelayTasks.size() < mPrefetchDepth && acquireIteration()) {
+						launchNextLoop(null);
+					}
+					continue;
+				}
+				for (Worker worker : mWorkers) {
+					Request<T> loop = worker.mCurrentLoop;
+					if (!isRequestRunning() || loop == null || loop.isRequestRunning()) {
+						continue;
+					}
+					worker.mCurrentLoop = null;
+					worker.mStatusCounts[loop.getStatus().ordinal()]++;
+					mInFlightLoops.remove(loop);
+					if (deliverLoop(loop)) {
+						delayNextLoop(loop, worker);
+					}
+				}
+				trimHistory();
+				for (Worker worker : mWorkers) {
+					if (isRequestRunning() && worker.mCurrentLoop == null && worker.mDelayTask == null && acquireIteration()) {
+						launchNextLoop(worker);
+					}
+				}
+			} while (mRedeliver);
+		} finally {
+			mDelivering = false;
+		}
+	}
+
+	/**
+	 * @return whether the loop left this request running and a next loop is needed
+	 */
+	private boolean deliverLoop(Request<T> loop) {
+		if (mIterationListener != null) {
+			try {
+				mIterationListener.onIteration(loop);
+			} catch (Exception e) {
+				//ignore
+			}
+		}
+		switch (loop.getStatus()) {
+			case Done: {
+				T result = loop.getResultValue();
+				if (!concludeDone(result)) {
+					return false;
+				}
+				Wnn.c(mTimeoutCheckTask, Task::cancel);
+				cancelOutstandingLoops();
+				try {
+					Wnn.c(mDelayPolicy, policy -> policy.onDone(loop));
+				} catch (Exception e) {
+					//ignore
+				}
+				try {
+					mCallback.accept(result);
+				} catch (Exception ee) {
+					//ignore
+				}
+				return false;
+			}
+			case Canceled:
+				concludeWithException(new RequestException(() -> String.format("Loop tagged %s cancel abnormally", loop.getTag())));
+				return false;
+			case Exception:
+				if (!mIgnoreException) {
+					concludeWithException(new RequestException(() -> String.format("Loop tagged %s encountered failure", loop.getTag()), loop.getResultException()));
+					return false;
+				}
+				return true;
+			case Timeout:
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	private boolean acquireIteration() {
+		if (mIterationListener == null) {
+			return true;
+		}
+		try {
+			return mIterationListener.tryAcquireIteration();
+		} catch (Exception e) {
+			concludeWithException(new RequestException(() -> String.format("Error acquiring iteration for loop request tagged %s", getTag()), e));
+			return false;
+		}
+	}
+
+	private void delayNextLoop(Request<T> loop, Worker worker) {
+		if (mDelayPolicy == null) {
+			return;
+		}
+		long delay;
+		try {
+			delay = mDelayPolicy.getDelay(loop);
+		} catch (Exception e) {
+			concludeWithException(new RequestException(() -> String.format("Error getting delay after loop tagged %s", loop.getTag()), e));
+			return;
+		}
+		if (delay <= 0) {
+			return;
+		}
+		Task[] delayTask = new Task[1];
+		delayTask[0] = scheduleTaskDelayed(
+				() -> {
+					synchronized (mRequestLock) {
+						mDelayTasks.remove(delayTask[0]);
+						if (worker != null) {
+							worker.mDelayTask = null;
+						}
+						deliverLoops();
+					}
+				},
+				delay
+		);
+		mDelayTasks.add(delayTask[0]);
+		if (worker != null) {
+			worker.mDelayTask = delayTask[0];
+		}
+	}
+
+	private void launchNextLoop(Worker worker) {
 		long remainingTimeout = getTimeoutRemains();
 		if (remainingTimeout <= 0 && getTimeout() > 0) {
-			setStatus(RequestStatus.Timeout);
+			if (!concludeStatus(RequestStatus.Timeout)) {
+				return;
+			}
 			Wnn.c(mTimeoutCheckTask, Task::cancel);
+			cancelOutstandingLoops();
 			try {
 				mCallback.onTimeout();
 			} catch (Exception e) {
@@ -34,33 +196,22 @@ public class LoopRequest<T> extends Request<T> {
 		try {
 			loop = mLoopSupplier.get();
 			if (loop == null) {
-				setResultException(new RuntimeException("Failed to generate loop"));
-				Wnn.c(mTimeoutCheckTask, Task::cancel);
-				setStatus(RequestStatus.Exception);
-				try {
-					mCallback.onException(getResultException());
-				} catch (Exception ee) {
-					//ignore
-				}
+				concludeWithException(new RuntimeException("Failed to generate loop"));
 				return;
 			}
 		} catch (Exception e) {
-			setResultException(e);
-			Wnn.c(mTimeoutCheckTask, Task::cancel);
-			setStatus(RequestStatus.Exception);
-			try {
-				mCallback.onException(e);
-			} catch (Exception ee) {
-				//ignore
-			}
+			concludeWithException(e);
 			return;
 		}
-		loop.setTag(String.format("%s-loop-%s", getTag(), mLoops.size()));
+		long loopIndex = mLoopCount++;
+		loop.setTagSupplier(() -> String.format("%s-loop-%s", getTag(), loopIndex));
 		mLoops.add(loop);
-		List<Request> callingChain = new ArrayList<>();
-		callingChain.addAll(getCallingChain());
-		callingChain.add(this);
-		loop.setupCallingChain(callingChain);
+		mInFlightLoops.addLast(loop);
+		if (worker != null) {
+			worker.mCurrentLoop = loop;
+			worker.mLoopCount++;
+		}
+		loop.setupCaller(this);
 		loop.setTaskScheduler(getTaskScheduler());
 		try {
 			loop.launch(
@@ -68,52 +219,7 @@ public class LoopRequest<T> extends Request<T> {
 
 						private void handleResult() {
 							synchronized (mRequestLock) {
-								if (!isRequestRunning() || loop.isRequestRunning()) {
-									return;
-								}
-								if (loop.getStatus() == RequestStatus.Done) {
-									T result = loop.getResultValue();
-									setResultValue(result);
-									Wnn.c(mTimeoutCheckTask, Task::cancel);
-									setStatus(RequestStatus.Done);
-									try {
-										mCallback.accept(result);
-									} catch (Exception ee) {
-										//ignore
-									}
-									return;
-								}
-								if (loop.getStatus() == RequestStatus.Canceled) {
-									Exception e = new RuntimeException(String.format("Loop tagged %s cancel abnormally", loop.getTag()));
-									setResultException(e);
-									Wnn.c(mTimeoutCheckTask, Task::cancel);
-									setStatus(RequestStatus.Exception);
-									try {
-										mCallback.onException(e);
-									} catch (Exception ee) {
-										//ignore
-									}
-									return;
-								}
-								if (loop.getStatus() == RequestStatus.Exception) {
-									if (mIgnoreException) {
-										doNextLoop();
-										return;
-									}
-									Exception e = new RuntimeException(String.format("Loop tagged %s encountered failure", loop.getTag()), loop.getResultException());
-									setResultException(e);
-									Wnn.c(mTimeoutCheckTask, Task::cancel);
-									setStatus(RequestStatus.Exception);
-									try {
-										mCallback.onException(e);
-									} catch (Exception ee) {
-										//ignore
-									}
-									return;
-								}
-								if (loop.getStatus() == RequestStatus.Timeout) {
-									doNextLoop();
-								}
+								deliverLoops();
 							}
 						}
 
@@ -137,23 +243,61 @@ public class LoopRequest<T> extends Request<T> {
 							handleResult();
 						}
 					},
-					mSingleLooperTimeout
+					propagateDeadline(loop, mSingleLooperTimeout)
 			);
+			if (!isRequestRunning() && loop.isRequestRunning()) {
+				//concluded by cancel or timeout while launching
+				loop.cancel();
+			}
 		} catch (Exception e) {
-			synchronized (mRequestLock) {
-				if (!isRequestRunning()) {
-					//ignore
-					return;
-				}
-				Wnn.c(mTimeoutCheckTask, Task::cancel);
-				Exception exp = new RuntimeException(String.format("Error launching loop tagged %s", loop.getTag()), e);
-				setResultException(exp);
-				setStatus(RequestStatus.Exception);
-				try {
-					mCallback.onException(exp);
-				} catch (Exception ee) {
-					//ignore
+			if (!isRequestRunning()) {
+				//ignore
+				return;
+			}
+			concludeWithException(new RequestException(() -> String.format("Error launching loop tagged %s", loop.getTag()), e));
+		}
+	}
+
+	private void trimHistory() {
+		if (mHistoryLimit <= 0) {
+			return;
+		}
+		Iterator<Request<T>> iterator = mLoops.iterator();
+		while (mLoops.size() > mHistoryLimit && iterator.hasNext()) {
+			Request<T> loop = iterator.next();
+			if (loop.isRequestIdle() || loop.isRequestRunning()) {
+				continue;
+			}
+			iterator.remove();
+			mDroppedLoopCounts[loop.getStatus().ordinal()]++;
+			mDroppedLoopCount++;
+		}
+	}
+
+	private void concludeWithException(Exception e) {
+		if (!concludeException(e)) {
+			return;
+		}
+		Wnn.c(mTimeoutCheckTask, Task::cancel);
+		cancelOutstandingLoops();
+		try {
+			mCallback.onException(e);
+		} catch (Exception ee) {
+			//ignore
+		}
+	}
+
+	private void cancelOutstandingLoops() {
+		for (Task delayTask : mDelayTasks) {
+			delayTask.cancel();
+		}
+		for (Request<T> loop : mInFlightLoops) {
+			try {
+				if (loop.isRequestRunning()) {
+					loop.cancel();
 				}
+			} catch (Exception e) {
+				Logger.printException(TAG, new RuntimeException(String.format("Error canceling loop tagged %s, calling chain: %s", loop.getTag(), generateCallChainInfo()), e));
 			}
 		}
 	}
@@ -168,6 +312,132 @@ public class LoopRequest<T> extends Request<T> {
 		mIgnoreException = ignoreException;
 	}
 
+	/**
+	 * Keep up to the given number of loops in flight, the next loops are launched before the previous ones report. Loops are
+	 * still handled in the order they were obtained from the supplier, loops after the one concluding this request are canceled.
+	 * Defaults to 1, which launches the next loop only after the previous one reported.
+	 */
+	public void setPrefetchDepth(int prefetchDepth) {
+		if (prefetchDepth < 1) {
+			throw new IllegalArgumentException(String.format("Illegal prefetch depth: %s", prefetchDepth));
+		}
+		synchronized (mRequestLock) {
+			if (!isRequestIdle()) {
+				throw new RuntimeException(String.format("Set prefetch depth for loop request tagged %s, which is in status %s", getTag(), getStatus()));
+			}
+			if (prefetchDepth > 1 && mWorkerCount > 0) {
+				throw new RuntimeException(String.format("Set prefetch depth for loop request tagged %s, which has %s workers", getTag(), mWorkerCount));
+			}
+			mPrefetchDepth = prefetchDepth;
+		}
+	}
+
+	public int getPrefetchDepth() {
+		return mPrefetchDepth;
+	}
+
+	/**
+	 * Keep only the latest concluded loops for {@link #getChildRequests()} and {@link #dumpCallingStatus()}, earlier loops are
+	 * dropped and only counted by status, so a long running loop holds constant memory. Zero or negative means no limit, which
+	 * is the default.
+	 */
+	public void setHistoryLimit(int historyLimit) {
+		synchronized (mRequestLock) {
+			if (!isRequestIdle()) {
+				throw new RuntimeException(String.format("Set history limit for loop request tagged %s, which is in status %s", getTag(), getStatus()));
+			}
+			mHistoryLimit = historyLimit;
+		}
+	}
+
+	/**
+	 * Run the given number of workers, each of them obtains the next loop from the shared supplier as soon as its previous loop
+	 * reported. Loops are handled in the order they conclude, the first loop concluding this request stops all workers.
+	 * Exclusive with {@link #setPrefetchDepth(int)}, zero means worker mode is off, which is the default.
+	 */
+	public void setWorkerCount(int workerCount) {
+		if (workerCount < 0) {
+			throw new IllegalArgumentException(String.format("Illegal worker count: %s", workerCount));
+		}
+		synchronized (mRequestLock) {
+			if (!isRequestIdle()) {
+				throw new RuntimeException(String.format("Set worker count for loop request tagged %s, which is in status %s", getTag(), getStatus()));
+			}
+			if (workerCount > 0 && mPrefetchDepth > 1) {
+				throw new RuntimeException(String.format("Set worker count for loop request tagged %s, which has prefetch depth %s", getTag(), mPrefetchDepth));
+			}
+			mWorkerCount = workerCount;
+		}
+	}
+
+	public int getWorkerCount() {
+		return mWorkerCount;
+	}
+
+	/**
+	 * Wait between loops instead of obtaining the next loop right after the previous one reported, the wait is scheduled on the
+	 * task scheduler of this request. In worker mode each worker waits on its own. No delay by default.
+	 */
+	public void setDelayPolicy(DelayPolicy delayPolicy) {
+		synchronized (mRequestLock) {
+			if (!isRequestIdle()) {
+				throw new RuntimeException(String.format("Set delay policy for loop request tagged %s, which is in status %s", getTag(), getStatus()));
+			}
+			mDelayPolicy = delayPolicy;
+		}
+	}
+
+	public DelayPolicy getDelayPolicy() {
+		return mDelayPolicy;
+	}
+
+	/**
+	 * Observe every concluded loop in delivery order and hold back launching loops, launching held back is retried on
+	 * {@link #resumeIterations()}. Meant for adapters with backpressure.
+	 */
+	public void setIterationListener(IterationListener<T> iterationListener) {
+		synchronized (mRequestLock) {
+			if (!isRequestIdle()) {
+				throw new RuntimeException(String.format("Set iteration listener for loop request tagged %s, which is in status %s", getTag(), getStatus()));
+			}
+			mIterationListener = iterationListener;
+		}
+	}
+
+	/**
+	 * Launch the loops held back by {@link IterationListener#tryAcquireIteration()} as far as the listener allows now
+	 */
+	public void resumeIterations() {
+		synchronized (mRequestLock) {
+			if (!isRequestRunning()) {
+				return;
+			}
+			deliverLoops();
+		}
+	}
+
+	public int getHistoryLimit() {
+		return mHistoryLimit;
+	}
+
+	/**
+	 * @return number of loops obtained from the supplier so far, including dropped ones
+	 */
+	public long getLoopCount() {
+		synchronized (mRequestLock) {
+			return mLoopCount;
+		}
+	}
+
+	/**
+	 * @return number of loops concluded in the given status and dropped from the history
+	 */
+	public long getDroppedLoopCount(RequestStatus status) {
+		synchronized (mRequestLock) {
+			return mDroppedLoopCounts[status.ordinal()];
+		}
+	}
+
 	@Override
 	public void launch(Callback<T> callback, long timeout) {
 		synchronized (mRequestLock) {
@@ -175,31 +445,25 @@ public class LoopRequest<T> extends Request<T> {
 				throw new RuntimeException(String.format("Launch a loop request tagged %s, which is in status %s", getTag(), getStatus()));
 			}
 			Objects.requireNonNull(callback);
-			mCallback = callback;
+			mCallback = dispatchCallback(callback);
 			setStatus(RequestStatus.Pending);
 			timeout = Math.max(timeout, Request.TIMEOUT_UNLIMITED);
 			setTimeout(timeout);
 			setLaunchTime(System.currentTimeMillis());
-			if (timeout > 0) {
+			for (int i = 0; i < mWorkerCount; i++) {
+				mWorkers.add(new Worker(i));
+			}
+			if (timeout > 0 && !isDeadlineShared()) {
 				mTimeoutCheckTask = scheduleTaskDelayed(
 						() -> {
-							synchronized (mRequestLock) {
-								if (!isRequestRunning()) {
-									return;
-								}
-								setStatus(RequestStatus.Timeout);
-								try {
-									if (!mLoops.isEmpty()) {
-										mLoops.get(mLoops.size() - 1).cancel();
-									}
-								} catch (Exception e) {
-									Logger.printException(TAG, new RuntimeException(String.format("Error canceling loop request tagged %s when reaching timeout, calling chain: %s", getTag(), generateCallChainInfo()), e));
-								}
-								try {
-									mCallback.onTimeout();
-								} catch (Exception e) {
-									//ignore
-								}
+							if (!concludeStatus(RequestStatus.Timeout)) {
+								return;
+							}
+							cancelOutstandingLoops();
+							try {
+								mCallback.onTimeout();
+							} catch (Exception e) {
+								//ignore
 							}
 						},
 						timeout
@@ -207,17 +471,18 @@ public class LoopRequest<T> extends Request<T> {
 			}
 			try {
 				onLaunch();
-				doNextLoop();
+				deliverLoops();
 			} catch (Exception e) {
 				if (!isRequestRunning()) {
 					return;
 				}
 				Wnn.c(mTimeoutCheckTask, Task::cancel);
-				Exception exp = new RuntimeException(String.format("Error launching loop request tagged: %s", getTag()), e);
-				setResultException(exp);
-				setStatus(RequestStatus.Exception);
+				Exception exp = new RequestException(() -> String.format("Error launching loop request tagged: %s", getTag()), e);
+				if (!concludeException(exp)) {
+					return;
+				}
 				try {
-					callback.onException(exp);
+					mCallback.onException(exp);
 				} catch (Exception ee) {
 					//ignore
 				}
@@ -227,31 +492,31 @@ public class LoopRequest<T> extends Request<T> {
 
 	@Override
 	public void cancel() {
-		synchronized (mRequestLock) {
-			if (!isRequestRunning()) {
-				return;
-			}
-			mCancelingActionFlag = true;
+		if (!concludeStatus(RequestStatus.Canceled)) {
+			return;
+		}
+		Wnn.c(mTimeoutCheckTask, Task::cancel);
+		for (Task delayTask : mDelayTasks) {
+			delayTask.cancel();
+		}
+		Exception exceptionCanceling = null;
+		for (Request<T> loop : mInFlightLoops) {
 			try {
-				if (!mLoops.isEmpty()) {
-					mLoops.get(mLoops.size() - 1).cancel();
+				if (loop.isRequestRunning()) {
+					loop.cancel();
 				}
 			} catch (Exception e) {
-				throw new RuntimeException(String.format("Error canceling loop request tagged %s, calling chain: %s", getTag(), generateCallChainInfo()), e);
-			} finally {
-				mCancelingActionFlag = false;
-			}
-			if (!isRequestRunning()) {
-				return;
-			}
-			Wnn.c(mTimeoutCheckTask, Task::cancel);
-			setStatus(RequestStatus.Canceled);
-			try {
-				mCallback.onCanceled();
-			} catch (Exception e) {
-				//ignore
+				exceptionCanceling = e;
 			}
 		}
+		try {
+			mCallback.onCanceled();
+		} catch (Exception e) {
+			//ignore
+		}
+		if (exceptionCanceling != null) {
+			throw new RuntimeException(String.format("Error canceling loop request tagged %s, calling chain: %s", getTag(), generateCallChainInfo()), exceptionCanceling);
+		}
 	}
 
 	@Override
@@ -259,6 +524,13 @@ public class LoopRequest<T> extends Request<T> {
 		return String.format("(Loop Request) %s", getTag());
 	}
 
+	@Override
+	protected List<Request<?>> getChildRequests() {
+		synchronized (mRequestLock) {
+			return new ArrayList<>(mLoops);
+		}
+	}
+
 	@Override
 	public String dumpCallingStatus() {
 		synchronized (mRequestLock) {
@@ -281,10 +553,164 @@ public class LoopRequest<T> extends Request<T> {
 					break;
 			}
 			List<String> subActionStatus = new ArrayList<>();
+			for (Worker worker : mWorkers) {
+				subActionStatus.add(String.format("(Worker %s) %s loops %s, current %s", worker.mIndex, worker.mLoopCount, printStatusCounts(worker.mStatusCounts), Wnn.f(worker.mCurrentLoop, loop -> String.format("%s (%s)", loop.getTag(), loop.getStatus()))));
+			}
+			if (mDroppedLoopCount > 0) {
+				subActionStatus.add(String.format("(%s earlier loops dropped) %s", mDroppedLoopCount, printStatusCounts(mDroppedLoopCounts)));
+			}
 			for (Request subAction : mLoops) {
 				subActionStatus.add(subAction.dumpCallingStatus());
 			}
 			return concatDumpTree(String.format("%s:: %s", generateCallingInfo(), content), subActionStatus);
 		}
 	}
+
+	private static List<String> printStatusCounts(long[] statusCounts) {
+		List<String> counts = new ArrayList<>();
+		for (RequestStatus status : RequestStatus.values()) {
+			long count = statusCounts[status.ordinal()];
+			if (count > 0) {
+				counts.add(String.format("%s %s", status.name(), count));
+			}
+		}
+		return counts;
+	}
+
+	private class Worker {
+		private final int mIndex;
+		private final long[] mStatusCounts = new long[RequestStatus.values().length];
+		private long mLoopCount;
+		private Request<T> mCurrentLoop;
+		private Task mDelayTask;
+
+		private Worker(int index) {
+			mIndex = index;
+		}
+	}
+
+	/**
+	 * Observes the concluded loops of one loop request and gates the launch of the next ones, see
+	 * {@link LoopRequest#setIterationListener(IterationListener)}. Loops held back are launched by {@link LoopRequest#resumeIterations()}.
+	 */
+	public interface IterationListener<T> {
+
+		/**
+		 * Invoked before launching each loop with the request lock held, false holds the launch back
+		 */
+		default boolean tryAcquireIteration() {
+			return true;
+		}
+
+		/**
+		 * Invoked with the request lock held, before the loop concludes the loop request if it does
+		 */
+		void onIteration(Request<T> loop);
+	}
+
+	/**
+	 * Policies may keep state, share one instance between loop requests polling the same resource to carry the state over.
+	 */
+	public interface DelayPolicy {
+
+		/**
+		 * @return delay in milliseconds before obtaining the next loop, after the given loop concluded without concluding the loop request
+		 */
+		long getDelay(Request<?> loop);
+
+		/**
+		 * Called with the loop concluding the loop request with a result.
+		 */
+		default void onDone(Request<?> loop) {
+
+		}
+
+		static DelayPolicy fixed(long delay) {
+			return loop -> delay;
+		}
+
+		/**
+		 * Double the delay after each loop without result up to the max delay, and start over from the initial delay once a result
+		 * arrives. Jitter in [0, 1] is the fraction by which each delay is randomly shortened.
+		 */
+		static DelayPolicy exponential(long initialDelay, long maxDelay, double jitter) {
+			return new ExponentialDelayPolicy(initialDelay, maxDelay, jitter);
+		}
+
+		/**
+		 * Double the interval after each loop without result and halve it when a loop request concludes with a result, staying
+		 * within the given bounds, see {@link AdaptiveDelayPolicy}.
+		 */
+		static DelayPolicy adaptive(long minDelay, long maxDelay) {
+			return new AdaptiveDelayPolicy(minDelay, maxDelay);
+		}
+	}
+
+	public static class ExponentialDelayPolicy implements DelayPolicy {
+		private final long mInitialDelay;
+		private final long mMaxDelay;
+		private final double mJitter;
+		private long mDelay;
+
+		public ExponentialDelayPolicy(long initialDelay, long maxDelay, double jitter) {
+			if (initialDelay <= 0 || maxDelay < initialDelay) {
+				throw new IllegalArgumentException(String.format("Illegal delay bounds: %s, %s", initialDelay, maxDelay));
+			}
+			if (jitter < 0 || jitter > 1) {
+				throw new IllegalArgumentException(String.format("Illegal jitter: %s", jitter));
+			}
+			mInitialDelay = initialDelay;
+			mMaxDelay = maxDelay;
+			mJitter = jitter;
+			mDelay = initialDelay;
+		}
+
+		@Override
+		public synchronized long getDelay(Request<?> loop) {
+			long delay = mDelay;
+			mDelay = Math.min(mMaxDelay, mDelay * 2);
+			return delay - (long) (delay * mJitter * ThreadLocalRandom.current().nextDouble());
+		}
+
+		@Override
+		public synchronized void onDone(Request<?> loop) {
+			mDelay = mInitialDelay;
+		}
+	}
+
+	/**
+	 * Every loop handed to {@link #getDelay(Request)} came back without result, and the loop with a result concludes the loop
+	 * request, so within one run the interval only grows. The interval shrinks between runs: share one instance between loop
+	 * requests polling the same resource, each run then starts from the interval its predecessors settled on.
+	 */
+	public static class AdaptiveDelayPolicy implements DelayPolicy {
+		private final long mMinDelay;
+		private final long mMaxDelay;
+		private long mDelay;
+
+		public AdaptiveDelayPolicy(long minDelay, long maxDelay) {
+			if (minDelay < 0 || maxDelay < minDelay || maxDelay == 0) {
+				throw new IllegalArgumentException(String.format("Illegal delay bounds: %s, %s", minDelay, maxDelay));
+			}
+			mMinDelay = minDelay;
+			mMaxDelay = maxDelay;
+			mDelay = minDelay;
+		}
+
+		@Override
+		public synchronized long getDelay(Request<?> loop) {
+			long delay = mDelay;
+			mDelay = Math.min(mMaxDelay, Math.max(mDelay * 2, 1));
+			return delay;
+		}
+
+		@Override
+		public synchronized void onDone(Request<?> loop) {
+			mDelay = Math.max(mMinDelay, mDelay / 2);
+		}
+
+		public synchronized long getCurrentDelay() {
+			return mDelay;
+		}
+	}
 }
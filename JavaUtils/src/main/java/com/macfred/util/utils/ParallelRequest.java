@@ -1,7 +1,6 @@
 package com.macfred.util.utils;
 
 import com.macfred.util.Logger;
-import com.macfred.util.collection.ArrayMap;
 import com.macfred.util.function.Callback;
 import com.macfred.util.ref.Ref;
 
@@ -13,18 +12,80 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ParallelRequest<T> extends CompositeRequest<T> {
 	private static final String TAG = ParallelRequest.class.getSimpleName();
 	private final Set<Request<?>> mSubActions = new HashSet<>();
-	private final Map<Request<?>, RequestStatus> mSubActionResult = new ArrayMap<>();
+	private final Map<Request<?>, RequestStatus> mSubActionResult = new ConcurrentHashMap<>();
+	private final AtomicInteger mSucceededSubActionCount = new AtomicInteger();
+	private final AtomicInteger mFailedSubActionCount = new AtomicInteger();
+	private final AtomicBoolean mDecided = new AtomicBoolean();
+	private final Queue<Request<?>> mPendingSubActions = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger mLaunchRequestCount = new AtomicInteger();
 	private final ValueCompositor<T> mValueCompositor;
+	private final FoldCompositor<T, Object> mFoldCompositor;
+	private final Object mFoldLock = new Object();
+	private Object mFoldAccumulator;
+	private boolean mFoldFinished;
+	private int mMaxInFlight;
+	private CompletionPolicy mCompletionPolicy = CompletionPolicy.all();
 	private Callback<T> mCallback;
-	private Task mTimeoutCheckTask;
+	private volatile Task mTimeoutCheckTask;
 
 	public ParallelRequest(ValueCompositor<T> valueCompositor) {
 		mValueCompositor = valueCompositor;
+		mFoldCompositor = null;
+	}
+
+	/**
+	 * Fold each sub action result into an accumulator as soon as the sub action concludes, the result held by the sub action is
+	 * released right after folding, so memory depends on the accumulator instead of the number of sub actions.
+	 */
+	@SuppressWarnings("unchecked")
+	public <A> ParallelRequest(FoldCompositor<T, A> foldCompositor) {
+		mValueCompositor = null;
+		mFoldCompositor = (FoldCompositor<T, Object>) Objects.requireNonNull(foldCompositor);
+	}
+
+	/**
+	 * Limit the number of sub actions running at the same time, the next sub action is launched as soon as a running one concludes.
+	 * Sub actions launched later share the remaining timeout of this request. Zero or negative means no limit, which is the default.
+	 */
+	public void setMaxInFlight(int maxInFlight) {
+		synchronized (mRequestLock) {
+			if (!isRequestIdle()) {
+				throw new RuntimeException(String.format("Set max in flight for parallel request tagged %s, which is in status %s", getTag(), getStatus()));
+			}
+			mMaxInFlight = maxInFlight;
+		}
+	}
+
+	public int getMaxInFlight() {
+		return mMaxInFlight;
+	}
+
+	/**
+	 * Decide when the sub action results are enough to composite the result of this request, sub actions still running at that
+	 * moment are canceled and only the concluded ones are handed to the {@link ValueCompositor}. Defaults to {@link CompletionPolicy#all()}.
+	 */
+	public void setCompletionPolicy(CompletionPolicy completionPolicy) {
+		Objects.requireNonNull(completionPolicy);
+		synchronized (mRequestLock) {
+			if (!isRequestIdle()) {
+				throw new RuntimeException(String.format("Set completion policy for parallel request tagged %s, which is in status %s", getTag(), getStatus()));
+			}
+			mCompletionPolicy = completionPolicy;
+		}
+	}
+
+	public CompletionPolicy getCompletionPolicy() {
+		return mCompletionPolicy;
 	}
 
 	@Override
@@ -54,125 +115,194 @@ public class ParallelRequest<T> extends CompositeRequest<T> {
 				throw new RuntimeException(String.format("Launch a parallel request tagged %s to which no sub action is offered", getTag()));
 			}
 			Objects.requireNonNull(callback);
-			mCallback = callback;
+			mCallback = dispatchCallback(callback);
 			setStatus(RequestStatus.Pending);
 			timeout = Math.max(timeout, Request.TIMEOUT_UNLIMITED);
 			setTimeout(timeout);
 			setLaunchTime(System.currentTimeMillis());
-			if (timeout > 0) {
+			int generation = getGeneration();
+			if (timeout > 0 && !isDeadlineShared()) {
 				mTimeoutCheckTask = scheduleTaskDelayed(
 						() -> {
-							synchronized (mRequestLock) {
-								if (!isRequestRunning()) {
-									return;
-								}
-								setStatus(RequestStatus.Timeout);
-								for (Request<?> subAction : mSubActions) {
-									if (subAction.isRequestRunning()) {
-										try {
-											subAction.cancel();
-										} catch (Exception e) {
-											Logger.printException(TAG, new RuntimeException(String.format("Error canceling sub action tagged %s for parallel request tagged %s when reaching timeout, calling chain: %s", subAction.getTag(), getTag(), subAction.generateCallChainInfo()), e));
-										}
+							if (!concludeStatus(generation, RequestStatus.Timeout)) {
+								return;
+							}
+							for (Request<?> subAction : mSubActions) {
+								if (subAction.isRequestRunning()) {
+									try {
+										subAction.cancel();
+									} catch (Exception e) {
+										Logger.printException(TAG, new RuntimeException(String.format("Error canceling sub action tagged %s for parallel request tagged %s when reaching timeout, calling chain: %s", subAction.getTag(), getTag(), subAction.generateCallChainInfo()), e));
 									}
 								}
-								try {
-									mCallback.onTimeout();
-								} catch (Exception e) {
-									//ignore
-								}
+							}
+							try {
+								mCallback.onTimeout();
+							} catch (Exception e) {
+								//ignore
 							}
 						},
 						timeout
 				);
 			}
+			for (Request<?> subAction : mSubActions) {
+				mPendingSubActions.offer(subAction);
+			}
 			try {
 				onLaunch();
-				for (Request subAction : mSubActions) {
-					List<Request> callingChain = new ArrayList<>();
-					callingChain.addAll(getCallingChain());
-					callingChain.add(this);
-					subAction.setupCallingChain(callingChain);
-					subAction.setTaskScheduler(getTaskScheduler());
-					try {
-						subAction.launch(
-								new Callback<Object>() {
-
-									private void handleResult(RequestStatus result) {
-										synchronized (mRequestLock) {
-											if (!isRequestRunning() || subAction.isRequestRunning()) {
-												return;
-											}
-											mSubActionResult.put(subAction, result);
-											Exception e;
-											switch (result) {
-												case Canceled:
-													e = new RuntimeException("Inner action cancel abnormally");
-													break;
-												default:
-													e = new RuntimeException(String.format("Inner action abnormally status: %s", result));
-													break;
-												case Timeout:
-												case Exception:
-												case Done:
-												case Pending:
-												case Idle:
-													calc();
-													return;
-											}
-											Exception exp = new RuntimeException(String.format("Error executing sub action tagged %s", subAction.getTag()), e);
-											setStatus(RequestStatus.Exception);
-											setResultException(exp);
-											Wnn.c(mTimeoutCheckTask, Task::cancel);
-											try {
-												mCallback.onException(exp);
-											} catch (Exception ee) {
-												//ignore
-											}
-										}
-									}
+				if (mFoldCompositor != null) {
+					mFoldAccumulator = mFoldCompositor.initial();
+				}
+				int maxInFlight = mMaxInFlight;
+				requestSubActionLaunch(generation, maxInFlight > 0 ? Math.min(maxInFlight, mSubActions.size()) : mSubActions.size());
+			} catch (Exception e) {
+				concludeWithLaunchException(generation, e);
+			}
+		}
+	}
 
-									@Override
-									public void accept(Object ret) {
-										handleResult(RequestStatus.Done);
-									}
+	private void requestSubActionLaunch(int generation, int count) {
+		//trampoline: only one thread drains the pending queue, sub actions concluding synchronously just leave a launch request
+		if (mLaunchRequestCount.getAndAdd(count) != 0) {
+			return;
+		}
+		int missed = count;
+		while (true) {
+			for (int i = 0; i < missed; i++) {
+				if (!launchNextSubAction(generation)) {
+					break;
+				}
+			}
+			missed = mLaunchRequestCount.addAndGet(-missed);
+			if (missed == 0) {
+				return;
+			}
+		}
+	}
 
-									@Override
-									public void onCanceled() {
-										handleResult(RequestStatus.Canceled);
-									}
+	private boolean launchNextSubAction(int generation) {
+		if (!isRequestRunning() || generation != getGeneration() || mDecided.get()) {
+			return false;
+		}
+		Request subAction = mPendingSubActions.poll();
+		if (subAction == null) {
+			return false;
+		}
+		subAction.setupCaller(this);
+		subAction.setTaskScheduler(getTaskScheduler());
+		long timeout = propagateDeadline(subAction, Request.TIMEOUT_UNLIMITED);
+		try {
+			subAction.launch(
+					new Callback<Object>() {
 
-									@Override
-									public void onException(Exception e) {
-										handleResult(RequestStatus.Exception);
+						private void handleResult(RequestStatus result) {
+							if (!isRequestRunning() || generation != getGeneration() || mDecided.get() || subAction.isRequestRunning()) {
+								return;
+							}
+							if (mSubActionResult.putIfAbsent(subAction, result) != null) {
+								return;
+							}
+							if (generation != getGeneration()) {
+								//recycled while registering the result
+								mSubActionResult.remove(subAction, result);
+								return;
+							}
+							Exception e;
+							switch (result) {
+								case Canceled:
+									e = new RuntimeException("Inner action cancel abnormally");
+									break;
+								default:
+									e = new RequestException(() -> String.format("Inner action abnormally status: %s", result));
+									break;
+								case Done:
+									if (!fold(generation, subAction, result)) {
+										return;
 									}
-
-									@Override
-									public void onTimeout() {
-										handleResult(RequestStatus.Timeout);
+									mSucceededSubActionCount.incrementAndGet();
+									onSubActionConcluded(generation);
+									return;
+								case Timeout:
+								case Exception:
+								case Pending:
+								case Idle:
+									if (!fold(generation, subAction, result)) {
+										return;
 									}
-								},
-								timeout
-						);
-					} catch (Exception e) {
-						Exception exp = new RuntimeException(String.format("Error launching sub action tagged %ss", subAction.getTag()), e);
-						throw exp;
-					}
-				}
+									mFailedSubActionCount.incrementAndGet();
+									onSubActionConcluded(generation);
+									return;
+							}
+							Exception exp = new RequestException(() -> String.format("Error executing sub action tagged %s", subAction.getTag()), e);
+							if (!concludeException(generation, exp)) {
+								return;
+							}
+							Wnn.c(mTimeoutCheckTask, Task::cancel);
+							try {
+								mCallback.onException(exp);
+							} catch (Exception ee) {
+								//ignore
+							}
+						}
+
+						@Override
+						public void accept(Object ret) {
+							handleResult(RequestStatus.Done);
+						}
+
+						@Override
+						public void onCanceled() {
+							handleResult(RequestStatus.Canceled);
+						}
+
+						@Override
+						public void onException(Exception e) {
+							handleResult(RequestStatus.Exception);
+						}
+
+						@Override
+						public void onTimeout() {
+							handleResult(RequestStatus.Timeout);
+						}
+					},
+					timeout
+			);
+		} catch (Exception e) {
+			concludeWithLaunchException(generation, new RequestException(() -> String.format("Error launching sub action tagged %ss", subAction.getTag()), e));
+			return false;
+		}
+		if (!isRequestRunning() && subAction.isRequestRunning()) {
+			//concluded by cancel or timeout while launching
+			try {
+				subAction.cancel();
 			} catch (Exception e) {
-				if (!isRequestRunning()) {
-					return;
+				Logger.printException(TAG, new RuntimeException(String.format("Error canceling sub action tagged %s for concluded parallel request tagged %s", subAction.getTag(), getTag()), e));
+			}
+		}
+		return true;
+	}
+
+	private boolean fold(int generation, Request<?> subAction, RequestStatus status) {
+		if (mFoldCompositor == null) {
+			return true;
+		}
+		try {
+			synchronized (mFoldLock) {
+				if (mFoldFinished || generation != getGeneration()) {
+					return false;
 				}
+				mFoldAccumulator = mFoldCompositor.fold(mFoldAccumulator, status, subAction.getResultValue(), subAction.getResultException());
+			}
+		} catch (Exception e) {
+			Exception exp = new RequestException(() -> String.format("Exception occurred while folding result of sub action tagged %s", subAction.getTag()), e);
+			if (concludeException(generation, exp)) {
 				Wnn.c(mTimeoutCheckTask, Task::cancel);
-				Exception exp = new RuntimeException(String.format("Error launching parallel request tagged %s", getTag()), e);
-				setResultException(exp);
-				setStatus(RequestStatus.Exception);
-				for (Request<?> subAction : mSubActions) {
-					if (subAction.isRequestRunning()) {
+				for (Request<?> other : mSubActions) {
+					if (other.isRequestRunning()) {
 						try {
-							subAction.cancel();
+							other.cancel();
 						} catch (Exception ee) {
-							Logger.printException(TAG, new RuntimeException(String.format("Error canceling sub action tagged %s  when failed to launch parallel request tagged %s", subAction.getTag(), getTag()), ee));
+							Logger.printException(TAG, new RuntimeException(String.format("Error canceling sub action tagged %s when failed to fold result for parallel request tagged %s", other.getTag(), getTag()), ee));
 						}
 					}
 				}
@@ -181,16 +311,48 @@ public class ParallelRequest<T> extends CompositeRequest<T> {
 				} catch (Exception ee) {
 					//ignore
 				}
-				return;
 			}
+			return false;
+		} finally {
+			subAction.releaseResult();
 		}
+		return true;
 	}
 
-	private void calc() {
-		synchronized (mRequestLock) {
-			if (!isRequestRunning()) {
-				return;
+	private void onSubActionConcluded(int generation) {
+		if (mCompletionPolicy.isDecided(mSubActions.size(), mSucceededSubActionCount.get(), mFailedSubActionCount.get())) {
+			calc(generation);
+		} else if (mMaxInFlight > 0) {
+			requestSubActionLaunch(generation, 1);
+		}
+	}
+
+	private void concludeWithLaunchException(int generation, Exception e) {
+		Exception exp = new RequestException(() -> String.format("Error launching parallel request tagged %s", getTag()), e);
+		if (!concludeException(generation, exp)) {
+			return;
+		}
+		Wnn.c(mTimeoutCheckTask, Task::cancel);
+		for (Request<?> subAction : mSubActions) {
+			if (subAction.isRequestRunning()) {
+				try {
+					subAction.cancel();
+				} catch (Exception ee) {
+					Logger.printException(TAG, new RuntimeException(String.format("Error canceling sub action tagged %s  when failed to launch parallel request tagged %s", subAction.getTag(), getTag()), ee));
+				}
 			}
+		}
+		try {
+			mCallback.onException(exp);
+		} catch (Exception ee) {
+			//ignore
+		}
+	}
+
+	private void calc(int generation) {
+		if (!isRequestRunning() || generation != getGeneration()) {
+			return;
+		}
 //			if (getTimeoutRemains() <= 0) {
 //				Wnn.c(mTimeoutCheckTask, Task::cancel);
 //				setStatus(RequestStatus.Timeout);
@@ -198,109 +360,135 @@ public class ParallelRequest<T> extends CompositeRequest<T> {
 //				return;
 //			}
 
-			//子任务全部完成
-			if (mSubActionResult.size() != mSubActions.size()) {
-				return;
+		if (!mDecided.compareAndSet(false, true)) {
+			return;
+		}
+		boolean allConcluded = mSubActionResult.size() == mSubActions.size();
+		if (!allConcluded) {
+			//结果已确定, 取消剩余子任务
+			mPendingSubActions.clear();
+			for (Request<?> subAction : mSubActions) {
+				if (subAction.isRequestRunning()) {
+					try {
+						subAction.cancel();
+					} catch (Exception e) {
+						Logger.printException(TAG, new RuntimeException(String.format("Error canceling sub action tagged %s for parallel request tagged %s whose result was decided, calling chain: %s", subAction.getTag(), getTag(), subAction.generateCallChainInfo()), e));
+					}
+				}
 			}
-			Wnn.c(mTimeoutCheckTask, Task::cancel);
+		}
 
-			Set<Request.RequestStatus> resultSet = new HashSet<>(mSubActionResult.values());
-			if (resultSet.contains(RequestStatus.Timeout)) {
-				setStatus(RequestStatus.Timeout);
-				try {
-					mCallback.onTimeout();
-				} catch (Exception e) {
-					//ignore
-				}
+		//子任务全部完成
+		if (allConcluded && mSubActionResult.containsValue(RequestStatus.Timeout)) {
+			if (!concludeStatus(generation, RequestStatus.Timeout)) {
 				return;
 			}
-
-			Ref<T> comprehensiveResultValue = new Ref<>();
-			Ref<Exception> comprehensiveResultException = new Ref<>();
-			RequestStatus comprehensiveResult = null;
-			Exception exceptionInCompositor = null;
+			Wnn.c(mTimeoutCheckTask, Task::cancel);
 			try {
-				comprehensiveResult = mValueCompositor.composite(new HashSet<>(mSubActions), comprehensiveResultValue, comprehensiveResultException);
+				mCallback.onTimeout();
 			} catch (Exception e) {
-				exceptionInCompositor = e;
+				//ignore
 			}
-			if (exceptionInCompositor != null) {
-				Exception combinedException = new RuntimeException("Exception occurred while generating comprehensive result value", exceptionInCompositor);
-				setResultException(combinedException);
-				setStatus(RequestStatus.Exception);
-				try {
-					mCallback.onException(combinedException);
-				} catch (Exception e) {
-					//ignore
+			return;
+		}
+
+		Ref<T> comprehensiveResultValue = new Ref<>();
+		Ref<Exception> comprehensiveResultException = new Ref<>();
+		RequestStatus comprehensiveResult = null;
+		Exception exceptionInCompositor = null;
+		try {
+			if (mFoldCompositor != null) {
+				synchronized (mFoldLock) {
+					mFoldFinished = true;
+					comprehensiveResult = mFoldCompositor.finish(mFoldAccumulator, comprehensiveResultValue, comprehensiveResultException);
+					mFoldAccumulator = null;
 				}
-				return;
+			} else {
+				comprehensiveResult = mValueCompositor.composite(new HashSet<>(mSubActionResult.keySet()), comprehensiveResultValue, comprehensiveResultException);
 			}
-			if (comprehensiveResult == null) {
-				Exception combinedException = new NullPointerException("Value compositor generated null");
-				setResultException(combinedException);
-				setStatus(RequestStatus.Exception);
+		} catch (Exception e) {
+			exceptionInCompositor = e;
+		}
+		if (exceptionInCompositor != null) {
+			concludeWithException(generation, new RuntimeException("Exception occurred while generating comprehensive result value", exceptionInCompositor));
+			return;
+		}
+		if (comprehensiveResult == null) {
+			concludeWithException(generation, new NullPointerException("Value compositor generated null"));
+			return;
+		}
+		switch (comprehensiveResult) {
+			case Done:
+				if (!concludeDone(generation, comprehensiveResultValue.value)) {
+					return;
+				}
+				Wnn.c(mTimeoutCheckTask, Task::cancel);
 				try {
-					mCallback.onException(combinedException);
+					mCallback.accept(comprehensiveResultValue.value);
 				} catch (Exception e) {
 					//ignore
 				}
 				return;
-			}
-			switch (comprehensiveResult) {
-				case Done:
-					setResultValue(comprehensiveResultValue.value);
-					setStatus(RequestStatus.Done);
-					try {
-						mCallback.accept(comprehensiveResultValue.value);
-					} catch (Exception e) {
-						//ignore
-					}
-					return;
-				case Exception:
-					setResultException(comprehensiveResultException.value);
-					setStatus(RequestStatus.Exception);
-					try {
-						mCallback.onException(comprehensiveResultException.value);
-					} catch (Exception e) {
-						//ignore
-					}
-					return;
-				default:
-					Exception exception = new RuntimeException(String.format("Unable handle current situation, comprehensive result: %s", comprehensiveResult));
-					setResultException(exception);
-					setStatus(RequestStatus.Exception);
-					try {
-						mCallback.onException(exception);
-					} catch (Exception e) {
-						//ignore
-					}
-					return;
-			}
+			case Exception:
+				concludeWithException(generation, comprehensiveResultException.value);
+				return;
+			default:
+				concludeWithException(generation, new RuntimeException(String.format("Unable handle current situation, comprehensive result: %s", comprehensiveResult)));
+				return;
+		}
+	}
+
+	private void concludeWithException(int generation, Exception exception) {
+		if (!concludeException(generation, exception)) {
+			return;
+		}
+		Wnn.c(mTimeoutCheckTask, Task::cancel);
+		try {
+			mCallback.onException(exception);
+		} catch (Exception e) {
+			//ignore
 		}
 	}
 
 	@Override
 	public void cancel() {
-		synchronized (mRequestLock) {
-			if (!isRequestRunning()) {
-				return;
-			}
-			Wnn.c(mTimeoutCheckTask, Task::cancel);
-			setStatus(RequestStatus.Canceled);
-			for (Request<?> subAction : mSubActions) {
-				if (subAction.isRequestRunning()) {
-					try {
-						subAction.cancel();
-					} catch (Exception e) {
-						Logger.printException(TAG, new RuntimeException(String.format("Error canceling sub action tagged %s for parallel request tagged %s when invoking cancel, calling chain: %s", subAction.getTag(), getTag(), subAction.generateCallChainInfo()), e));
-					}
+		if (!concludeStatus(RequestStatus.Canceled)) {
+			return;
+		}
+		Wnn.c(mTimeoutCheckTask, Task::cancel);
+		for (Request<?> subAction : mSubActions) {
+			if (subAction.isRequestRunning()) {
+				try {
+					subAction.cancel();
+				} catch (Exception e) {
+					Logger.printException(TAG, new RuntimeException(String.format("Error canceling sub action tagged %s for parallel request tagged %s when invoking cancel, calling chain: %s", subAction.getTag(), getTag(), subAction.generateCallChainInfo()), e));
 				}
 			}
-			try {
-				mCallback.onCanceled();
-			} catch (Exception e) {
-				//ignore
-			}
+		}
+		try {
+			mCallback.onCanceled();
+		} catch (Exception e) {
+			//ignore
+		}
+	}
+
+	/**
+	 * Sub actions are dropped, set up new ones before launching again
+	 */
+	@Override
+	protected void onReset() {
+		Wnn.c(mTimeoutCheckTask, Task::cancel);
+		mTimeoutCheckTask = null;
+		mCallback = null;
+		mSubActions.clear();
+		mSubActionResult.clear();
+		mSucceededSubActionCount.set(0);
+		mFailedSubActionCount.set(0);
+		mDecided.set(false);
+		mPendingSubActions.clear();
+		synchronized (mFoldLock) {
+			mFoldAccumulator = null;
+			mFoldFinished = false;
 		}
 	}
 
@@ -309,6 +497,11 @@ public class ParallelRequest<T> extends CompositeRequest<T> {
 		return String.format("(Parallel Request) %s", getTag());
 	}
 
+	@Override
+	protected List<Request<?>> getChildRequests() {
+		return new ArrayList<>(mSubActions);
+	}
+
 	@Override
 	public String dumpCallingStatus() {
 		synchronized (mRequestLock) {
@@ -338,6 +531,42 @@ public class ParallelRequest<T> extends CompositeRequest<T> {
 		}
 	}
 
+	public interface CompletionPolicy {
+
+		boolean isDecided(int total, int succeeded, int failed);
+
+		static CompletionPolicy all() {
+			return (total, succeeded, failed) -> succeeded + failed >= total;
+		}
+
+		static CompletionPolicy firstSuccess() {
+			return (total, succeeded, failed) -> succeeded > 0 || succeeded + failed >= total;
+		}
+
+		static CompletionPolicy failFast() {
+			return (total, succeeded, failed) -> failed > 0 || succeeded + failed >= total;
+		}
+
+		static CompletionPolicy quorum(int count) {
+			if (count <= 0) {
+				throw new IllegalArgumentException(String.format("Illegal quorum: %s", count));
+			}
+			return (total, succeeded, failed) -> succeeded >= count || total - failed < count || succeeded + failed >= total;
+		}
+	}
+
+	public interface FoldCompositor<T, A> {
+
+		A initial();
+
+		/**
+		 * Invoked once for each concluded sub action, serialized across sub actions
+		 */
+		A fold(A accumulator, RequestStatus status, Object resultValue, Exception resultException);
+
+		RequestStatus finish(A accumulator, Ref<T> resultValue, Ref<Exception> resultException);
+	}
+
 	public interface ValueCompositor<T> {
 
 		RequestStatus composite(Collection<Request<?>> subActions, Ref<T> resultValue, Ref<Exception> resultException);
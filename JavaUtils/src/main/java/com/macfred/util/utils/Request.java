@@ -4,17 +4,25 @@ import com.google.common.base.Joiner;
 import com.macfred.util.Logger;
 import com.macfred.util.function.Callback;
 import com.macfred.util.function.Function;
+import com.macfred.util.function.Supplier;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Objects;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 public abstract class Request<T> {
     private static final String TAG = Request.class.getSimpleName();
-    private static final TaskScheduler sDefaultTaskScheduler = new TaskScheduler() {
+    private static final TaskScheduler sTimerTaskScheduler = new TaskScheduler() {
         private Timer mTimer = new Timer();
 
         @Override
@@ -24,8 +32,9 @@ public abstract class Request<T> {
                 public void run() {
                     try {
                         action.run();
-                    } catch (Exception e) {
-                        Logger.printException(TAG, new RuntimeException("Error executing task", e));
+                    } catch (Throwable t) {
+                        //an error escaping here would kill the shared timer thread and stall every later request
+                        Logger.printException(TAG, new RuntimeException("Error executing task", t));
                     }
                 }
             };
@@ -34,17 +43,38 @@ public abstract class Request<T> {
             return task;
         }
     };
+    private static volatile TaskScheduler sDefaultTaskScheduler = sTimerTaskScheduler;
+    private static volatile Executor sDefaultCallbackExecutor;
+    private static volatile RequestMetrics sRequestMetrics;
+
+    //status and generation share one word, so a conclusion meant for an earlier generation can never hit a recycled request
+    @SuppressWarnings("rawtypes")
+    private static final AtomicLongFieldUpdater<Request> STAMP_UPDATER = AtomicLongFieldUpdater.newUpdater(Request.class, "mStamp");
+    private static final RequestStatus[] STATUSES = RequestStatus.values();
+    private static final int STATUS_BITS = 3;
+    private static final long STATUS_MASK = (1L << STATUS_BITS) - 1;
+    //transient status held by the winner of a conclusion while it stores the result, reported as Pending
+    private static final long COMPLETING = STATUSES.length;
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<Request, RequestMetrics.Entry> METRICS_ENTRY_UPDATER = AtomicReferenceFieldUpdater.newUpdater(Request.class, RequestMetrics.Entry.class, "mMetricsEntry");
 
     private TaskScheduler mTaskScheduler;
+    private Executor mCallbackExecutor;
     protected final Object mRequestLock = new Object();
-    private volatile RequestStatus mStatus = RequestStatus.Idle;
-    private T mResultValue;
-    private Exception mResultException;
+    private volatile long mStamp = RequestStatus.Idle.ordinal();
+    private volatile T mResultValue;
+    private volatile Exception mResultException;
     private long mTimeout;
     private long mLaunchTime;
-    private String mTag;
-    private final List<Request> mCallingChain = new ArrayList<>();
+    private volatile long mLaunchNanoTime;
+    private volatile long mFinishNanoTime;
+    private volatile RequestMetrics.Entry mMetricsEntry;
+    private volatile String mTag;
+    private volatile Supplier<String> mTagSupplier;
+    private volatile CallingChainNode mCallingChain;
+    private volatile CallingChainNode mCallingChainNode;
     private Function<T, String> mResultValuePrinter;
+    private volatile boolean mDeadlineShared;
 
     protected Task scheduleTaskDelayed(Runnable action, long delay) {
         return scheduleTask(action, System.currentTimeMillis() + delay);
@@ -55,6 +85,14 @@ public abstract class Request<T> {
         return taskScheduler.scheduleTask(action, time);
     }
 
+    public static void setDefaultTaskScheduler(TaskScheduler taskScheduler) {
+        sDefaultTaskScheduler = Wnn.d(taskScheduler, sTimerTaskScheduler);
+    }
+
+    public static TaskScheduler getDefaultTaskScheduler() {
+        return sDefaultTaskScheduler;
+    }
+
     public interface TaskScheduler {
         Task scheduleTask(Runnable action, long time);
     }
@@ -77,6 +115,53 @@ public abstract class Request<T> {
         return mTaskScheduler;
     }
 
+    public static void setDefaultCallbackExecutor(Executor callbackExecutor) {
+        sDefaultCallbackExecutor = callbackExecutor;
+    }
+
+    public static Executor getDefaultCallbackExecutor() {
+        return sDefaultCallbackExecutor;
+    }
+
+    /**
+     * Record latency and outcome of every request launched from now on into the given metrics, null to stop recording
+     */
+    public static void setRequestMetrics(RequestMetrics requestMetrics) {
+        sRequestMetrics = requestMetrics;
+    }
+
+    public static RequestMetrics getRequestMetrics() {
+        return sRequestMetrics;
+    }
+
+    /**
+     * Hands the callbacks of this request to the given executor once the terminal status is committed,
+     * so that a slow consumer never runs while the request is holding its lock. Null means invoking the
+     * callback on the thread concluding the request. Requests launched by a composite request ignore the
+     * process-wide default and report to their parent directly, unless an executor is set explicitly.
+     */
+    public void setCallbackExecutor(Executor callbackExecutor) {
+        synchronized (mRequestLock) {
+            RequestStatus status = getStatus();
+            if (!RequestStatus.Idle.equals(status)) {
+                throw new RuntimeException(String.format("Trying to set callback executor when status is %s", status));
+            }
+            mCallbackExecutor = callbackExecutor;
+        }
+    }
+
+    public Executor getCallbackExecutor() {
+        return mCallbackExecutor;
+    }
+
+    protected Callback<T> dispatchCallback(Callback<T> callback) {
+        Executor callbackExecutor = mCallbackExecutor;
+        if (callbackExecutor == null && mCallingChain == null) {
+            callbackExecutor = sDefaultCallbackExecutor;
+        }
+        return callbackExecutor == null ? callback : new DispatchingCallback<>(callback, callbackExecutor);
+    }
+
     public void setResultValuePrinter(Function<T, String> resultValuePrinter) {
         synchronized (mRequestLock) {
             RequestStatus status = getStatus();
@@ -88,7 +173,15 @@ public abstract class Request<T> {
     }
 
     public String getTag() {
-        return mTag;
+        String tag = mTag;
+        if (tag == null) {
+            Supplier<String> tagSupplier = mTagSupplier;
+            if (tagSupplier != null) {
+                tag = tagSupplier.get();
+                mTag = tag;
+            }
+        }
+        return tag;
     }
 
     public void setTag(String tag) {
@@ -97,6 +190,27 @@ public abstract class Request<T> {
                 throw new RuntimeException("Set tag for request which is not idle");
             }
             mTag = tag;
+            mTagSupplier = null;
+        }
+    }
+
+    /**
+     * @return tag set through {@link #setTag(String)}, null when there is none or the tag comes from a supplier
+     */
+    String getAssignedTag() {
+        return mTagSupplier == null ? mTag : null;
+    }
+
+    /**
+     * Set a tag which is generated on first read
+     */
+    public void setTagSupplier(Supplier<String> tagSupplier) {
+        synchronized (mRequestLock) {
+            if (!isRequestIdle()) {
+                throw new RuntimeException("Set tag for request which is not idle");
+            }
+            mTag = null;
+            mTagSupplier = tagSupplier;
         }
     }
 
@@ -105,20 +219,53 @@ public abstract class Request<T> {
             if (!isRequestIdle()) {
                 throw new RuntimeException("Setup calling chain for request which is not idle");
             }
-            if (!mCallingChain.isEmpty()) {
+            if (mCallingChain != null) {
                 throw new RuntimeException("Setup calling chain for request which has been setup before");
             }
-            mCallingChain.addAll(callingChain);
+            CallingChainNode node = null;
+            for (Request<?> request : callingChain) {
+                node = new CallingChainNode(request, node);
+            }
+            mCallingChain = node;
         }
     }
 
+    /**
+     * Link this request to the calling chain of its caller, the chain nodes of the caller are shared instead of copied.
+     */
+    protected void setupCaller(Request<?> caller) {
+        synchronized (mRequestLock) {
+            if (!isRequestIdle()) {
+                throw new RuntimeException("Setup calling chain for request which is not idle");
+            }
+            if (mCallingChain != null) {
+                throw new RuntimeException("Setup calling chain for request which has been setup before");
+            }
+            mCallingChain = caller.getCallingChainNode();
+        }
+    }
+
+    private CallingChainNode getCallingChainNode() {
+        CallingChainNode node = mCallingChainNode;
+        if (node == null) {
+            node = new CallingChainNode(this, mCallingChain);
+            mCallingChainNode = node;
+        }
+        return node;
+    }
+
     protected List<Request> getCallingChain() {
-        return new ArrayList<>(mCallingChain);
+        List<Request> callingChain = new ArrayList<>();
+        for (CallingChainNode node = mCallingChain; node != null; node = node.mParent) {
+            callingChain.add(node.mRequest);
+        }
+        Collections.reverse(callingChain);
+        return callingChain;
     }
 
     protected String generateCallChainInfo() {
         List<String> temp = new ArrayList<>();
-        for (Request request : mCallingChain) {
+        for (Request<?> request : getCallingChain()) {
             temp.add(String.format("{%s}", request.generateCallingInfo()));
         }
         temp.add(String.format("{%s}", generateCallingInfo()));
@@ -127,6 +274,13 @@ public abstract class Request<T> {
 
     protected abstract String generateCallingInfo();
 
+    /**
+     * @return requests launched or to be launched by this request, in launch order where it is defined
+     */
+    protected List<Request<?>> getChildRequests() {
+        return Collections.emptyList();
+    }
+
     public abstract String dumpCallingStatus();
 
     protected String printResultValue() {
@@ -146,7 +300,19 @@ public abstract class Request<T> {
     }
 
     public final RequestStatus getStatus() {
-        return mStatus;
+        long status = mStamp & STATUS_MASK;
+        return status == COMPLETING ? RequestStatus.Pending : STATUSES[(int) status];
+    }
+
+    /**
+     * @return generation of this request, increased by every {@link #reset()}
+     */
+    public final int getGeneration() {
+        return (int) (mStamp >>> STATUS_BITS);
+    }
+
+    private static long stamp(int generation, RequestStatus status) {
+        return ((generation & 0xFFFFFFFFL) << STATUS_BITS) | status.ordinal();
     }
 
     protected final boolean testCurrentStatus(RequestStatus status) {
@@ -154,7 +320,149 @@ public abstract class Request<T> {
     }
 
     protected final void setStatus(RequestStatus status) {
-        mStatus = status;
+        long stamp;
+        do {
+            stamp = mStamp;
+        } while (!STAMP_UPDATER.compareAndSet(this, stamp, (stamp & ~STATUS_MASK) | status.ordinal()));
+        onStatusChanged(status);
+    }
+
+    protected final boolean compareAndSetStatus(RequestStatus expect, RequestStatus update) {
+        long stamp;
+        do {
+            stamp = mStamp;
+            if ((stamp & STATUS_MASK) != expect.ordinal()) {
+                return false;
+            }
+        } while (!STAMP_UPDATER.compareAndSet(this, stamp, (stamp & ~STATUS_MASK) | update.ordinal()));
+        onStatusChanged(update);
+        return true;
+    }
+
+    private void onStatusChanged(RequestStatus status) {
+        switch (status) {
+            case Done:
+            case Exception:
+            case Canceled:
+            case Timeout:
+                long finishNanoTime = System.nanoTime();
+                mFinishNanoTime = finishNanoTime;
+                if (mMetricsEntry == null) {
+                    break;
+                }
+                RequestMetrics.Entry entry = METRICS_ENTRY_UPDATER.getAndSet(this, null);
+                if (entry != null) {
+                    entry.onConclude(status, finishNanoTime - mLaunchNanoTime);
+                }
+                break;
+        }
+    }
+
+    /**
+     * Moves a running request to the given terminal status. Only one of the racing completion, cancel
+     * and timeout paths wins, the others observe false and must leave the request untouched.
+     */
+    protected final boolean concludeStatus(RequestStatus status) {
+        return compareAndSetStatus(RequestStatus.Pending, status);
+    }
+
+    /**
+     * Same as {@link #concludeStatus(RequestStatus)}, but only while this request is still in the given generation, for callbacks
+     * and timeout checks which may outlive the launch they belong to.
+     */
+    protected final boolean concludeStatus(int generation, RequestStatus status) {
+        if (!STAMP_UPDATER.compareAndSet(this, stamp(generation, RequestStatus.Pending), stamp(generation, status))) {
+            return false;
+        }
+        onStatusChanged(status);
+        return true;
+    }
+
+    /**
+     * Concludes a running request as {@link RequestStatus#Done}. The winner claims the request before storing the result value
+     * and publishes the status afterwards, so whoever sees this request concluded also reads its result, and a losing or stale
+     * callback never touches the result.
+     */
+    protected final boolean concludeDone(T resultValue) {
+        long stamp = mStamp;
+        if ((stamp & STATUS_MASK) != RequestStatus.Pending.ordinal()) {
+            return false;
+        }
+        return publishResult(stamp, RequestStatus.Done, resultValue, null);
+    }
+
+    /**
+     * Same as {@link #concludeDone(Object)}, but only while this request is still in the given generation
+     */
+    protected final boolean concludeDone(int generation, T resultValue) {
+        return publishResult(stamp(generation, RequestStatus.Pending), RequestStatus.Done, resultValue, null);
+    }
+
+    /**
+     * Concludes a running request as {@link RequestStatus#Exception}, the exception is stored ahead of the status like
+     * {@link #concludeDone(Object)} does with the result value.
+     */
+    protected final boolean concludeException(Exception resultException) {
+        long stamp = mStamp;
+        if ((stamp & STATUS_MASK) != RequestStatus.Pending.ordinal()) {
+            return false;
+        }
+        return publishResult(stamp, RequestStatus.Exception, null, resultException);
+    }
+
+    /**
+     * Same as {@link #concludeException(Exception)}, but only while this request is still in the given generation
+     */
+    protected final boolean concludeException(int generation, Exception resultException) {
+        return publishResult(stamp(generation, RequestStatus.Pending), RequestStatus.Exception, null, resultException);
+    }
+
+    private boolean publishResult(long expect, RequestStatus status, T resultValue, Exception resultException) {
+        long generation = expect & ~STATUS_MASK;
+        if (!STAMP_UPDATER.compareAndSet(this, expect, generation | COMPLETING)) {
+            return false;
+        }
+        if (status == RequestStatus.Done) {
+            mResultValue = resultValue;
+        } else {
+            mResultException = resultException;
+        }
+        mStamp = generation | status.ordinal();
+        onStatusChanged(status);
+        return true;
+    }
+
+    /**
+     * Bring a concluded request back to idle so it can be launched again, see {@link RequestPool}. Per launch state is cleared and
+     * the generation is increased, configuration like tag and task scheduler is kept. Requests which do not override
+     * {@link #onReset()} can not be recycled.
+     */
+    public final void reset() {
+        synchronized (mRequestLock) {
+            long stamp = mStamp;
+            if ((stamp & STATUS_MASK) == RequestStatus.Pending.ordinal() || (stamp & STATUS_MASK) == COMPLETING) {
+                throw new RuntimeException(String.format("Reset request tagged %s, which is still running", getTag()));
+            }
+            onReset();
+            mResultValue = null;
+            mResultException = null;
+            mTimeout = 0;
+            mLaunchTime = 0;
+            mLaunchNanoTime = 0;
+            mFinishNanoTime = 0;
+            mMetricsEntry = null;
+            mCallingChain = null;
+            mCallingChainNode = null;
+            mDeadlineShared = false;
+            mStamp = stamp((int) (stamp >>> STATUS_BITS) + 1, RequestStatus.Idle);
+        }
+    }
+
+    /**
+     * Clear the per launch state of the subclass, invoked by {@link #reset()} with the request lock held
+     */
+    protected void onReset() {
+        throw new RuntimeException(String.format("Reset request tagged %s, which does not support recycling", getTag()));
     }
 
     public final T getResultValue() {
@@ -173,6 +481,14 @@ public abstract class Request<T> {
         mResultException = resultException;
     }
 
+    /**
+     * Drop the result held by this request once its owner has consumed it
+     */
+    void releaseResult() {
+        mResultValue = null;
+        mResultException = null;
+    }
+
     public final long getTimeout() {
         return mTimeout;
     }
@@ -187,18 +503,91 @@ public abstract class Request<T> {
 
     protected final void setLaunchTime(long launchTime) {
         mLaunchTime = launchTime;
+        mLaunchNanoTime = System.nanoTime();
+        RequestMetrics requestMetrics = sRequestMetrics;
+        if (requestMetrics != null) {
+            mMetricsEntry = requestMetrics.onLaunch(this);
+            RequestStatus status = getStatus();
+            if (status != RequestStatus.Pending) {
+                //concluded before launch time was recorded
+                onStatusChanged(status);
+            }
+        }
+    }
+
+    /**
+     * @return {@link System#nanoTime()} when this request was launched, only comparable with other nano times
+     */
+    public final long getLaunchNanoTime() {
+        return mLaunchNanoTime;
+    }
+
+    /**
+     * @return {@link System#nanoTime()} when this request reached a terminal status, 0 if still idle or running
+     */
+    public final long getFinishNanoTime() {
+        return mFinishNanoTime;
     }
 
     public final long getTimeoutRemains() {
         return Math.max(getTimeout() - (System.currentTimeMillis() - getLaunchTime()), 0);
     }
 
+    /**
+     * Bound the timeout of a child by the remaining timeout of this request. A child which would not conclude before this request
+     * anyway shares the deadline of this request instead of scheduling its own timeout check, so this request must cancel its
+     * running children on reaching timeout, and the child is concluded as canceled.
+     *
+     * @return timeout to launch the child with
+     */
+    protected long propagateDeadline(Request<?> child, long childTimeout) {
+        if (getTimeout() <= 0 || !isRequestRunning()) {
+            return childTimeout;
+        }
+        long remains = Math.max(getTimeoutRemains(), 1);
+        if (childTimeout > 0 && childTimeout < remains) {
+            return childTimeout;
+        }
+        child.mDeadlineShared = true;
+        return remains;
+    }
+
+    /**
+     * @return whether this request is bounded by the deadline of its caller and needs no timeout check of its own
+     */
+    protected final boolean isDeadlineShared() {
+        return mDeadlineShared;
+    }
+
     public abstract void launch(Callback<T> callback, long timeout);
 
     public void launch(Callback<T> callback) {
         launch(callback, TIMEOUT_UNLIMITED);
     }
 
+    /**
+     * Launch this request and expose it as a future, which is also the launch callback. Canceling the future cancels this request
+     * and canceling this request cancels the future, reaching timeout completes the future with a
+     * {@link java.util.concurrent.TimeoutException}.
+     */
+    public CompletableFuture<T> toCompletableFuture(long timeout) {
+        RequestFuture<T> future = new RequestFuture<>(this);
+        launch(future, timeout);
+        return future;
+    }
+
+    public CompletableFuture<T> toCompletableFuture() {
+        return toCompletableFuture(TIMEOUT_UNLIMITED);
+    }
+
+    /**
+     * Wrap a stage which is already running, see {@link CompletionStageRequest} for starting the work on launch
+     */
+    public static <T> Request<T> fromCompletionStage(CompletionStage<T> stage) {
+        Objects.requireNonNull(stage);
+        return new CompletionStageRequest<>(() -> stage);
+    }
+
     protected void onLaunch() {
 
     }
@@ -431,4 +820,13 @@ public abstract class Request<T> {
 ////		System.out.println(serialRequest.dumpCallingStatus());
 //	}
 
+    private static final class CallingChainNode {
+        private final Request<?> mRequest;
+        private final CallingChainNode mParent;
+
+        private CallingChainNode(Request<?> request, CallingChainNode parent) {
+            mRequest = request;
+            mParent = parent;
+        }
+    }
 }
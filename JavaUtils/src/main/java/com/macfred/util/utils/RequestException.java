@@ -0,0 +1,44 @@
+package com.macfred.util.utils;
+
+import com.macfred.util.function.Supplier;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+
+/**
+ * Exception whose message is rendered on first read, so that wrapping failures on routine paths does not pay for formatting
+ */
+public class RequestException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+	private final transient Supplier<String> mMessageSupplier;
+	private volatile String mMessage;
+
+	public RequestException(Supplier<String> messageSupplier) {
+		this(messageSupplier, null);
+	}
+
+	public RequestException(Supplier<String> messageSupplier, Throwable cause) {
+		super(null, cause);
+		mMessageSupplier = messageSupplier;
+	}
+
+	@Override
+	public String getMessage() {
+		String message = mMessage;
+		if (message == null && mMessageSupplier != null) {
+			try {
+				message = mMessageSupplier.get();
+			} catch (Exception e) {
+				message = String.format("Failed to generate message: %s", e);
+			}
+			mMessage = message;
+		}
+		return message;
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		//the supplier stays behind, ship the rendered message instead
+		getMessage();
+		out.defaultWriteObject();
+	}
+}
@@ -0,0 +1,46 @@
+package com.macfred.util.utils;
+
+import com.macfred.util.function.Callback;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Future view of a launched request, which is the launch callback itself, see {@link Request#toCompletableFuture(long)}
+ */
+final class RequestFuture<T> extends CompletableFuture<T> implements Callback<T> {
+	private final Request<T> mRequest;
+
+	RequestFuture(Request<T> request) {
+		mRequest = request;
+	}
+
+	@Override
+	public void accept(T value) {
+		complete(value);
+	}
+
+	@Override
+	public void onException(Exception e) {
+		completeExceptionally(e);
+	}
+
+	@Override
+	public void onTimeout() {
+		completeExceptionally(new TimeoutException(String.format("Request tagged %s timeout", mRequest.getTag())));
+	}
+
+	@Override
+	public void onCanceled() {
+		super.cancel(false);
+	}
+
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		boolean canceled = super.cancel(mayInterruptIfRunning);
+		if (canceled && mRequest.isRequestRunning()) {
+			mRequest.cancel();
+		}
+		return canceled;
+	}
+}
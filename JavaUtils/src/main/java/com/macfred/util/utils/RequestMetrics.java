@@ -0,0 +1,211 @@
+package com.macfred.util.utils;
+
+import com.macfred.util.function.Function;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per key latency histogram, outcome counters and in-flight gauge of requests, install with {@link Request#setRequestMetrics(RequestMetrics)}.
+ * Requests are keyed by the tag set through {@link Request#setTag(String)}, falling back to class name. Tags generated per child,
+ * such as the ones of loops and attempts, are never rendered for a key. Keys beyond the limit are recorded under
+ * {@link #OVERFLOW_KEY}, recording is lock-free once the key has been seen.
+ */
+public class RequestMetrics {
+	public static final String OVERFLOW_KEY = "(overflow)";
+	public static final int DEFAULT_MAX_KEYS = 1024;
+	private static final Function<Request<?>, String> DEFAULT_KEY_FUNCTION = Request::getAssignedTag;
+	private final ConcurrentMap<String, Entry> mEntries = new ConcurrentHashMap<>();
+	private final Function<Request<?>, String> mKeyFunction;
+	private final int mMaxKeys;
+
+	public RequestMetrics() {
+		this(DEFAULT_KEY_FUNCTION);
+	}
+
+	public RequestMetrics(Function<Request<?>, String> keyFunction) {
+		this(keyFunction, DEFAULT_MAX_KEYS);
+	}
+
+	/**
+	 * @param keyFunction maps a request to its metrics key, null falls back to class name
+	 * @param maxKeys     keys recorded separately, requests of further keys are recorded under {@link #OVERFLOW_KEY}
+	 */
+	public RequestMetrics(Function<Request<?>, String> keyFunction, int maxKeys) {
+		if (maxKeys <= 0) {
+			throw new IllegalArgumentException(String.format("Illegal max keys: %s", maxKeys));
+		}
+		mKeyFunction = keyFunction;
+		mMaxKeys = maxKeys;
+	}
+
+	Entry onLaunch(Request<?> request) {
+		String key = Wnn.d(mKeyFunction.apply(request), request.getClass().getSimpleName());
+		Entry entry = mEntries.get(key);
+		if (entry == null) {
+			if (mEntries.size() >= mMaxKeys) {
+				//racing launches may overshoot the limit by a few keys, which is fine for keeping the map bounded
+				key = OVERFLOW_KEY;
+			}
+			entry = mEntries.computeIfAbsent(key, k -> new Entry());
+		}
+		entry.mInFlight.increment();
+		return entry;
+	}
+
+	public Snapshot getSnapshot(String key) {
+		return Wnn.f(mEntries.get(key), Entry::snapshot);
+	}
+
+	public Map<String, Snapshot> getSnapshots() {
+		Map<String, Snapshot> snapshots = new HashMap<>();
+		for (Map.Entry<String, Entry> entry : mEntries.entrySet()) {
+			snapshots.put(entry.getKey(), entry.getValue().snapshot());
+		}
+		return snapshots;
+	}
+
+	public void clear() {
+		mEntries.clear();
+	}
+
+	static final class Entry {
+		private final LongAdder mInFlight = new LongAdder();
+		private final LongAdder[] mStatusCounts = new LongAdder[Request.RequestStatus.values().length];
+		private final LongAdder mTotalLatency = new LongAdder();
+		private final AtomicLongArray mHistogram = new AtomicLongArray(Histogram.BUCKET_COUNT);
+
+		private Entry() {
+			for (int i = 0; i < mStatusCounts.length; i++) {
+				mStatusCounts[i] = new LongAdder();
+			}
+		}
+
+		void onConclude(Request.RequestStatus status, long latencyNanos) {
+			mInFlight.decrement();
+			mStatusCounts[status.ordinal()].increment();
+			long latencyMicros = TimeUnit.NANOSECONDS.toMicros(Math.max(latencyNanos, 0));
+			mTotalLatency.add(latencyMicros);
+			mHistogram.incrementAndGet(Histogram.indexOf(latencyMicros));
+		}
+
+		private Snapshot snapshot() {
+			long[] statusCounts = new long[mStatusCounts.length];
+			for (int i = 0; i < statusCounts.length; i++) {
+				statusCounts[i] = mStatusCounts[i].sum();
+			}
+			long[] histogram = new long[mHistogram.length()];
+			for (int i = 0; i < histogram.length; i++) {
+				histogram[i] = mHistogram.get(i);
+			}
+			return new Snapshot(mInFlight.sum(), statusCounts, mTotalLatency.sum(), histogram);
+		}
+	}
+
+	/**
+	 * Exponential buckets with 8 linear sub buckets per power of two, values are kept with a relative error below 12.5%
+	 */
+	private static final class Histogram {
+		private static final int SUB_BUCKET_BITS = 3;
+		private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+		private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+		private static int indexOf(long value) {
+			if (value < SUB_BUCKET_COUNT) {
+				return (int) value;
+			}
+			int exponent = 63 - Long.numberOfLeadingZeros(value);
+			int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+			return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+		}
+
+		private static long upperBoundOf(int index) {
+			if (index < SUB_BUCKET_COUNT) {
+				return index;
+			}
+			int exponent = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+			int subBucket = index % SUB_BUCKET_COUNT;
+			long lowerBound = (long) (SUB_BUCKET_COUNT + subBucket) << (exponent - SUB_BUCKET_BITS);
+			return lowerBound + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+		}
+	}
+
+	public static final class Snapshot {
+		private final long mInFlight;
+		private final long[] mStatusCounts;
+		private final long mTotalLatency;
+		private final long[] mHistogram;
+		private final long mCount;
+
+		private Snapshot(long inFlight, long[] statusCounts, long totalLatency, long[] histogram) {
+			mInFlight = inFlight;
+			mStatusCounts = statusCounts;
+			mTotalLatency = totalLatency;
+			mHistogram = histogram;
+			long count = 0;
+			for (long bucket : histogram) {
+				count += bucket;
+			}
+			mCount = count;
+		}
+
+		public long getInFlight() {
+			return mInFlight;
+		}
+
+		public long getCount() {
+			return mCount;
+		}
+
+		public long getCount(Request.RequestStatus status) {
+			return mStatusCounts[status.ordinal()];
+		}
+
+		/**
+		 * @return mean latency in microseconds
+		 */
+		public long getMeanLatency() {
+			return mCount == 0 ? 0 : mTotalLatency / mCount;
+		}
+
+		/**
+		 * @param percentile in range (0, 100]
+		 * @return upper bound of the latency in microseconds at the given percentile
+		 */
+		public long getLatencyPercentile(double percentile) {
+			if (mCount == 0) {
+				return 0;
+			}
+			long rank = Math.max((long) Math.ceil(percentile / 100 * mCount), 1);
+			long seen = 0;
+			for (int i = 0; i < mHistogram.length; i++) {
+				seen += mHistogram[i];
+				if (seen >= rank) {
+					return Histogram.upperBoundOf(i);
+				}
+			}
+			return Histogram.upperBoundOf(mHistogram.length - 1);
+		}
+
+		@Override
+		public String toString() {
+			return String.format(
+					"count: %s, in flight: %s, done: %s, exception: %s, canceled: %s, timeout: %s, mean: %sus, p50: %sus, p99: %sus",
+					mCount,
+					mInFlight,
+					getCount(Request.RequestStatus.Done),
+					getCount(Request.RequestStatus.Exception),
+					getCount(Request.RequestStatus.Canceled),
+					getCount(Request.RequestStatus.Timeout),
+					getMeanLatency(),
+					getLatencyPercentile(50),
+					getLatencyPercentile(99)
+			);
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package com.macfred.util.utils;
+
+import com.macfred.util.function.Supplier;
+
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool of recyclable requests, see {@link Request#reset()}. A released request is reset right away, so callbacks left over
+ * from its previous launch are ignored, but the releasing owner must not touch it anymore.
+ */
+public class RequestPool<R extends Request<?>> {
+	private final ArrayBlockingQueue<R> mIdleRequests;
+	private final Supplier<R> mRequestFactory;
+	private final AtomicLong mCreatedCount = new AtomicLong();
+	private final AtomicLong mRecycledCount = new AtomicLong();
+
+	/**
+	 * @param capacity max number of idle requests kept, requests released to a full pool are dropped
+	 */
+	public RequestPool(Supplier<R> requestFactory, int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException(String.format("Illegal capacity: %s", capacity));
+		}
+		mRequestFactory = Objects.requireNonNull(requestFactory);
+		mIdleRequests = new ArrayBlockingQueue<>(capacity);
+	}
+
+	/**
+	 * @return an idle request, created by the factory if no idle one is pooled
+	 */
+	public R acquire() {
+		R request = mIdleRequests.poll();
+		if (request != null) {
+			mRecycledCount.incrementAndGet();
+			return request;
+		}
+		request = Objects.requireNonNull(mRequestFactory.get(), "Request factory generated null");
+		mCreatedCount.incrementAndGet();
+		return request;
+	}
+
+	/**
+	 * Reset the concluded request and keep it for later {@link #acquire()}
+	 */
+	public void release(R request) {
+		request.reset();
+		mIdleRequests.offer(request);
+	}
+
+	public int getIdleCount() {
+		return mIdleRequests.size();
+	}
+
+	public long getCreatedCount() {
+		return mCreatedCount.get();
+	}
+
+	public long getRecycledCount() {
+		return mRecycledCount.get();
+	}
+}
@@ -0,0 +1,116 @@
+package com.macfred.util.utils;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Export a request tree with launch and finish times of each node, as Chrome trace events (load in chrome://tracing or Perfetto)
+ * or as nested span JSON. Times are in microseconds relative to the launch of the root request, running nodes end at export time.
+ */
+public class RequestTraceExporter {
+	private static final Gson sGson = new Gson();
+
+	private RequestTraceExporter() {
+
+	}
+
+	public static String toChromeTrace(Request<?> root) {
+		JsonArray events = new JsonArray();
+		if (!root.isRequestIdle()) {
+			long nowNanoTime = System.nanoTime();
+			collectTraceEvents(root, 0, root.getLaunchNanoTime(), nowNanoTime, nowNanoTime, events, new int[]{0});
+		}
+		JsonObject trace = new JsonObject();
+		trace.add("traceEvents", events);
+		trace.addProperty("displayTimeUnit", "ms");
+		return sGson.toJson(trace);
+	}
+
+	public static String toSpanJson(Request<?> root) {
+		return sGson.toJson(toSpan(root, root.getLaunchNanoTime(), System.nanoTime()));
+	}
+
+	private static void collectTraceEvents(Request<?> request, int lane, long baseNanoTime, long nowNanoTime, long parentEndNanoTime, JsonArray events, int[] laneCounter) {
+		long start = request.getLaunchNanoTime();
+		//a child canceled right after its parent concluded is clipped so that it stays nested on the lane of the parent
+		long end = Math.max(Math.min(getEndNanoTime(request, nowNanoTime), parentEndNanoTime), start);
+		JsonObject event = new JsonObject();
+		event.addProperty("name", request.generateCallingInfo());
+		event.addProperty("cat", request.getClass().getSimpleName());
+		event.addProperty("ph", "X");
+		event.addProperty("ts", toMicros(start - baseNanoTime));
+		event.addProperty("dur", toMicros(end - start));
+		event.addProperty("pid", 1);
+		event.addProperty("tid", lane);
+		JsonObject args = new JsonObject();
+		args.addProperty("tag", request.getTag());
+		args.addProperty("status", request.getStatus().name());
+		event.add("args", args);
+		events.add(event);
+
+		List<Integer> lanes = new ArrayList<>();
+		List<Long> laneEnds = new ArrayList<>();
+		lanes.add(lane);
+		laneEnds.add(start);
+		for (Request<?> child : getLaunchedChildren(request)) {
+			long childStart = child.getLaunchNanoTime();
+			int index = 0;
+			while (index < lanes.size() && laneEnds.get(index) > childStart) {
+				index++;
+			}
+			if (index == lanes.size()) {
+				lanes.add(++laneCounter[0]);
+				laneEnds.add(childStart);
+			}
+			laneEnds.set(index, Math.max(getEndNanoTime(child, nowNanoTime), childStart));
+			collectTraceEvents(child, lanes.get(index), baseNanoTime, nowNanoTime, index == 0 ? end : Long.MAX_VALUE, events, laneCounter);
+		}
+	}
+
+	private static JsonObject toSpan(Request<?> request, long baseNanoTime, long nowNanoTime) {
+		JsonObject span = new JsonObject();
+		span.addProperty("name", request.generateCallingInfo());
+		span.addProperty("type", request.getClass().getSimpleName());
+		span.addProperty("tag", request.getTag());
+		span.addProperty("status", request.getStatus().name());
+		if (!request.isRequestIdle()) {
+			long start = request.getLaunchNanoTime();
+			span.addProperty("start", toMicros(start - baseNanoTime));
+			span.addProperty("duration", toMicros(getEndNanoTime(request, nowNanoTime) - start));
+		}
+		List<Request<?>> children = request.getChildRequests();
+		if (!children.isEmpty()) {
+			JsonArray childSpans = new JsonArray();
+			for (Request<?> child : children) {
+				childSpans.add(toSpan(child, baseNanoTime, nowNanoTime));
+			}
+			span.add("children", childSpans);
+		}
+		return span;
+	}
+
+	private static List<Request<?>> getLaunchedChildren(Request<?> request) {
+		List<Request<?>> children = new ArrayList<>();
+		for (Request<?> child : request.getChildRequests()) {
+			if (!child.isRequestIdle()) {
+				children.add(child);
+			}
+		}
+		Collections.sort(children, Comparator.comparingLong(Request::getLaunchNanoTime));
+		return children;
+	}
+
+	private static long getEndNanoTime(Request<?> request, long nowNanoTime) {
+		return request.isRequestRunning() ? nowNanoTime : request.getFinishNanoTime();
+	}
+
+	private static double toMicros(long nanos) {
+		return nanos / 1000.0;
+	}
+}
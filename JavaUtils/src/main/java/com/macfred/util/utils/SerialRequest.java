@@ -17,8 +17,9 @@ public class SerialRequest<T> extends CompositeRequest<T> {
 	private final Stack<Request<?>> mSubActionExecutionStack = new Stack<>();
 	private final Deque<Request<?>> mSubActionScheduleQueue = new ArrayDeque<>();
 	private final ValueCompositor<T> mValueCompositor;
+	private volatile Request<?> mCurrentSubAction;
 	private Callback<T> mCallback;
-	private Task mTimeoutCheckTask;
+	private volatile Task mTimeoutCheckTask;
 
 	public SerialRequest(ValueCompositor<T> valueCompositor) {
 		mValueCompositor = valueCompositor;
@@ -53,33 +54,31 @@ public class SerialRequest<T> extends CompositeRequest<T> {
 			for (Request<?> subAction : mSubActions) {
 				mSubActionScheduleQueue.offer(subAction);
 			}
-			mCallback = callback;
+			mCallback = dispatchCallback(callback);
 			setStatus(RequestStatus.Pending);
 			timeout = Math.max(timeout, Request.TIMEOUT_UNLIMITED);
 			setTimeout(timeout);
 			setLaunchTime(System.currentTimeMillis());
-			if (timeout > 0) {
+			int generation = getGeneration();
+			if (timeout > 0 && !isDeadlineShared()) {
 				mTimeoutCheckTask = scheduleTaskDelayed(
 						() -> {
-							synchronized (mRequestLock) {
-								if (!isRequestRunning()) {
-									return;
-								}
-								setStatus(RequestStatus.Timeout);
-								Request<?> subAction = mSubActionExecutionStack.peek();
-								if (subAction != null && subAction.isRequestRunning()) {
-									try {
-										subAction.cancel();
-									} catch (Exception e) {
-										Logger.printException(TAG, new RuntimeException(String.format("Error canceling sub action tagged %s for serial request tagged %s when reaching timeout, calling chain: %s", subAction.getTag(), getTag(), generateCallChainInfo()), e));
-									}
-								}
+							if (!concludeStatus(generation, RequestStatus.Timeout)) {
+								return;
+							}
+							Request<?> subAction = mCurrentSubAction;
+							if (subAction != null && subAction.isRequestRunning()) {
 								try {
-									mCallback.onTimeout();
+									subAction.cancel();
 								} catch (Exception e) {
-									//ignore
+									Logger.printException(TAG, new RuntimeException(String.format("Error canceling sub action tagged %s for serial request tagged %s when reaching timeout, calling chain: %s", subAction.getTag(), getTag(), generateCallChainInfo()), e));
 								}
 							}
+							try {
+								mCallback.onTimeout();
+							} catch (Exception e) {
+								//ignore
+							}
 						},
 						timeout
 				);
@@ -92,11 +91,12 @@ public class SerialRequest<T> extends CompositeRequest<T> {
 					return;
 				}
 				Wnn.c(mTimeoutCheckTask, Task::cancel);
-				Exception exp = new RuntimeException(String.format("Failed to launch serial request tagged %s", getTag()), e);
-				setResultException(exp);
-				setStatus(RequestStatus.Exception);
+				Exception exp = new RequestException(() -> String.format("Failed to launch serial request tagged %s", getTag()), e);
+				if (!concludeException(exp)) {
+					return;
+				}
 				try {
-					callback.onException(exp);
+					mCallback.onException(exp);
 				} catch (Exception ee) {
 					//ignore
 				}
@@ -105,10 +105,11 @@ public class SerialRequest<T> extends CompositeRequest<T> {
 	}
 
 	private void scheduleNextSubAction() {
+		int generation = getGeneration();
 		scheduleTaskDelayed(
 				() -> {
 					synchronized (mRequestLock) {
-						if (!isRequestRunning()) {
+						if (!isRequestRunning() || generation != getGeneration()) {
 							return;
 						}
 						try {
@@ -119,8 +120,9 @@ public class SerialRequest<T> extends CompositeRequest<T> {
 								Logger.printException(TAG, exp);
 								return;
 							}
-							setResultException(exp);
-							setStatus(RequestStatus.Exception);
+							if (!concludeException(generation, exp)) {
+								return;
+							}
 							Wnn.c(mTimeoutCheckTask, Task::cancel);
 							try {
 								mCallback.onException(exp);
@@ -148,8 +150,9 @@ public class SerialRequest<T> extends CompositeRequest<T> {
 						return;
 					}
 					Exception exp = new RuntimeException("Error composing result", e);
-					setStatus(RequestStatus.Exception);
-					setResultException(exp);
+					if (!concludeException(exp)) {
+						return;
+					}
 					Wnn.c(mTimeoutCheckTask, Task::cancel);
 					try {
 						mCallback.onException(exp);
@@ -158,9 +161,10 @@ public class SerialRequest<T> extends CompositeRequest<T> {
 					}
 					return;
 				}
-				setResultValue(composition);
+				if (!concludeDone(composition)) {
+					return;
+				}
 				Wnn.c(mTimeoutCheckTask, Task::cancel);
-				setStatus(RequestStatus.Done);
 				try {
 					mCallback.accept(composition);
 				} catch (Exception e) {
@@ -170,7 +174,9 @@ public class SerialRequest<T> extends CompositeRequest<T> {
 			}
 			long remainingTimeout = getTimeoutRemains();
 			if (remainingTimeout <= 0 && getTimeout() > 0) {
-				setStatus(RequestStatus.Timeout);
+				if (!concludeStatus(RequestStatus.Timeout)) {
+					return;
+				}
 				Wnn.c(mTimeoutCheckTask, Task::cancel);
 				try {
 					mCallback.onTimeout();
@@ -179,12 +185,11 @@ public class SerialRequest<T> extends CompositeRequest<T> {
 				}
 				return;
 			}
+			int generation = getGeneration();
 			Request subAction = mSubActionScheduleQueue.poll();
 			mSubActionExecutionStack.push(subAction);
-			List<Request> callingChain = new ArrayList<>();
-			callingChain.addAll(getCallingChain());
-			callingChain.add(this);
-			subAction.setupCallingChain(callingChain);
+			mCurrentSubAction = subAction;
+			subAction.setupCaller(this);
 			subAction.setTaskScheduler(getTaskScheduler());
 			try {
 				subAction.launch(
@@ -192,14 +197,15 @@ public class SerialRequest<T> extends CompositeRequest<T> {
 
 							private void handleResult() {
 								synchronized (mRequestLock) {
-									if (!isRequestRunning() || subAction.isRequestRunning()) {
+									if (!isRequestRunning() || generation != getGeneration() || subAction.isRequestRunning()) {
 										return;
 									}
 									if (subAction.getStatus() == RequestStatus.Canceled) {
-										Exception e = new RuntimeException(String.format("Sub action tagged %s cancel abnormally", subAction.getTag()));
-										setResultException(e);
+										Exception e = new RequestException(() -> String.format("Sub action tagged %s cancel abnormally", subAction.getTag()));
+										if (!concludeException(generation, e)) {
+											return;
+										}
 										Wnn.c(mTimeoutCheckTask, Task::cancel);
-										setStatus(RequestStatus.Exception);
 										try {
 											mCallback.onException(e);
 										} catch (Exception ee) {
@@ -222,9 +228,10 @@ public class SerialRequest<T> extends CompositeRequest<T> {
 									}
 									String msg = String.format("Unable to proceed sub action tagged %s in serial request tagged %s", subAction.getTag(), getTag());
 									Exception exception = exp == null ? new RuntimeException(msg) : new RuntimeException(msg, exp);
-									setResultException(exception);
+									if (!concludeException(generation, exception)) {
+										return;
+									}
 									Wnn.c(mTimeoutCheckTask, Task::cancel);
-									setStatus(RequestStatus.Exception);
 									try {
 										mCallback.onException(exception);
 									} catch (Exception e) {
@@ -254,8 +261,12 @@ public class SerialRequest<T> extends CompositeRequest<T> {
 								handleResult();
 							}
 						},
-						remainingTimeout
+						propagateDeadline(subAction, Request.TIMEOUT_UNLIMITED)
 				);
+				if (!isRequestRunning() && subAction.isRequestRunning()) {
+					//concluded by cancel or timeout while launching
+					subAction.cancel();
+				}
 			} catch (Exception e) {
 				synchronized (mRequestLock) {
 					if (!isRequestRunning()) {
@@ -263,9 +274,10 @@ public class SerialRequest<T> extends CompositeRequest<T> {
 						return;
 					}
 					Wnn.c(mTimeoutCheckTask, Task::cancel);
-					Exception exp = new RuntimeException(String.format("Error launching sub action tagged %s", subAction.getTag()), e);
-					setResultException(exp);
-					setStatus(RequestStatus.Exception);
+					Exception exp = new RequestException(() -> String.format("Error launching sub action tagged %s", subAction.getTag()), e);
+					if (!concludeException(generation, exp)) {
+						return;
+					}
 					try {
 						mCallback.onException(exp);
 					} catch (Exception ee) {
@@ -278,26 +290,37 @@ public class SerialRequest<T> extends CompositeRequest<T> {
 
 	@Override
 	public void cancel() {
-		synchronized (mRequestLock) {
-			if (!isRequestRunning()) {
-				return;
-			}
-			Wnn.c(mTimeoutCheckTask, Task::cancel);
-			setStatus(RequestStatus.Canceled);
-			Request<?> subAction = mSubActionExecutionStack.peek();
-			if (subAction != null && subAction.isRequestRunning()) {
-				try {
-					subAction.cancel();
-				} catch (Exception e) {
-					Logger.printException(TAG, new RuntimeException(String.format("Error canceling sub action tagged %s for serial request tagged %s when invoking cancel, calling chain: %s", subAction.getTag(), getTag(), generateCallChainInfo()), e));
-				}
-			}
+		if (!concludeStatus(RequestStatus.Canceled)) {
+			return;
+		}
+		Wnn.c(mTimeoutCheckTask, Task::cancel);
+		Request<?> subAction = mCurrentSubAction;
+		if (subAction != null && subAction.isRequestRunning()) {
 			try {
-				mCallback.onCanceled();
+				subAction.cancel();
 			} catch (Exception e) {
-				//ignore
+				Logger.printException(TAG, new RuntimeException(String.format("Error canceling sub action tagged %s for serial request tagged %s when invoking cancel, calling chain: %s", subAction.getTag(), getTag(), generateCallChainInfo()), e));
 			}
 		}
+		try {
+			mCallback.onCanceled();
+		} catch (Exception e) {
+			//ignore
+		}
+	}
+
+	/**
+	 * Sub actions are dropped, set up new ones before launching again
+	 */
+	@Override
+	protected void onReset() {
+		Wnn.c(mTimeoutCheckTask, Task::cancel);
+		mTimeoutCheckTask = null;
+		mCallback = null;
+		mCurrentSubAction = null;
+		mSubActions.clear();
+		mSubActionExecutionStack.clear();
+		mSubActionScheduleQueue.clear();
 	}
 
 	@Override
@@ -305,6 +328,13 @@ public class SerialRequest<T> extends CompositeRequest<T> {
 		return String.format("(Serial Request) %s", getTag());
 	}
 
+	@Override
+	protected List<Request<?>> getChildRequests() {
+		synchronized (mRequestLock) {
+			return new ArrayList<>(mSubActions);
+		}
+	}
+
 	@Override
 	public String dumpCallingStatus() {
 		synchronized (mRequestLock) {
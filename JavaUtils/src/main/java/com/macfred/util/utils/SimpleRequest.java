@@ -5,74 +5,93 @@ import com.macfred.util.function.Callback;
 import com.macfred.util.function.Consumer;
 
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 public class SimpleRequest<T> extends Request<T> {
 	private final String TAG = SimpleRequest.class.getSimpleName();
-	private Task mTimeoutCheckTask;
+	//cancel and timeout only cancel an action which has been executed, launch cancels it afterwards if they came in between
+	private static final int ACTION_IDLE = 0;
+	private static final int ACTION_EXECUTED = 1;
+	private static final int ACTION_CANCELED = 2;
+	@SuppressWarnings("rawtypes")
+	private static final AtomicIntegerFieldUpdater<SimpleRequest> ACTION_STATE_UPDATER = AtomicIntegerFieldUpdater.newUpdater(SimpleRequest.class, "mActionState");
+	private volatile Task mTimeoutCheckTask;
 	private Callback<T> mCallback;
 	private RequestAction<T> mRequestAction;
-	private boolean mCancelingActionFlag;
+	private volatile int mActionState = ACTION_IDLE;
 
-	private final Callback<T> mIntermediateCallback = new Callback<T>() {
+	private class IntermediateCallback implements Callback<T> {
+		private final int mGeneration;
+
+		private IntermediateCallback(int generation) {
+			mGeneration = generation;
+		}
 
 		private void handelResult(RequestStatus result, Consumer<Callback<T>> callbackHandler) {
-			synchronized (mRequestLock) {
-				if (!isRequestRunning()) {
-					return;
-				}
-				Wnn.c(mTimeoutCheckTask, Task::cancel);
-				setStatus(result);
-				try {
-					callbackHandler.accept(mCallback);
-				} catch (Exception e) {
-					//ignore
-				}
+			if (!concludeStatus(mGeneration, result)) {
+				return;
+			}
+			Wnn.c(mTimeoutCheckTask, Task::cancel);
+			try {
+				callbackHandler.accept(mCallback);
+			} catch (Exception e) {
+				//ignore
 			}
 		}
 
 		@Override
 		public void accept(T ret) {
-			handelResult(
-					RequestStatus.Done,
-					callback -> {
-						setResultValue(ret);
-						callback.accept(ret);
-					}
-			);
+			if (!concludeDone(mGeneration, ret)) {
+				return;
+			}
+			Wnn.c(mTimeoutCheckTask, Task::cancel);
+			try {
+				mCallback.accept(ret);
+			} catch (Exception e) {
+				//ignore
+			}
 		}
 
 		@Override
 		public void onCanceled() {
-			if (mCancelingActionFlag) {
-				return;
-			}
-			Exception e = new RuntimeException("Inner action cancel abnormally");
-			handelResult(RequestStatus.Exception,
-					callback -> {
-						setResultException(e);
-						callback.onException(e);
-					});
+			onException(new RuntimeException("Inner action cancel abnormally"));
 		}
 
 		@Override
 		public void onException(Exception e) {
-			handelResult(RequestStatus.Exception,
-					callback -> {
-						setResultException(e);
-						callback.onException(e);
-					});
+			if (!concludeException(mGeneration, e)) {
+				return;
+			}
+			Wnn.c(mTimeoutCheckTask, Task::cancel);
+			try {
+				mCallback.onException(e);
+			} catch (Exception ee) {
+				//ignore
+			}
 		}
 
 		@Override
 		public void onTimeout() {
 			handelResult(RequestStatus.Timeout, Callback::onTimeout);
 		}
-	};
+	}
 
 	public SimpleRequest(RequestAction<T> requestAction) {
 		mRequestAction = requestAction;
 	}
 
+	/**
+	 * Replace the action of an idle request, mostly for requests taken from a {@link RequestPool}
+	 */
+	public void setRequestAction(RequestAction<T> requestAction) {
+		synchronized (mRequestLock) {
+			if (!isRequestIdle()) {
+				throw new RuntimeException(String.format("Set request action for simple request tagged %s, which is in status %s", getTag(), getStatus()));
+			}
+			mRequestAction = requestAction;
+		}
+	}
+
 	@Override
 	public void launch(Callback<T> callback, long timeout) {
 		synchronized (mRequestLock) {
@@ -80,47 +99,58 @@ public class SimpleRequest<T> extends Request<T> {
 				throw new RuntimeException(String.format("Launch a simple request tagged %s, which is in status %s", getTag(), getStatus()));
 			}
 			Objects.requireNonNull(callback);
-			mCallback = callback;
+			mCallback = dispatchCallback(callback);
 			setStatus(RequestStatus.Pending);
 			timeout = Math.max(timeout, Request.TIMEOUT_UNLIMITED);
 			setTimeout(timeout);
 			setLaunchTime(System.currentTimeMillis());
-			if (timeout > 0) {
+			int generation = getGeneration();
+			if (timeout > 0 && !isDeadlineShared()) {
 				mTimeoutCheckTask = scheduleTaskDelayed(
 						() -> {
-							synchronized (mRequestLock) {
-								if (!isRequestRunning()) {
-									return;
-								}
-								setStatus(RequestStatus.Timeout);
+							if (!concludeStatus(generation, RequestStatus.Timeout)) {
+								return;
+							}
+							if (claimActionCancel()) {
 								try {
 									mRequestAction.cancel();
 								} catch (Exception e) {
 									Logger.printException(TAG, new RuntimeException(String.format("Error canceling simple request tagged %s when reaching timeout, calling chain: %s", getTag(), generateCallChainInfo()), e));
 								}
-								try {
-									mCallback.onTimeout();
-								} catch (Exception e) {
-									//ignore
-								}
+							}
+							try {
+								mCallback.onTimeout();
+							} catch (Exception e) {
+								//ignore
 							}
 						},
 						timeout
 				);
+				if (!isRequestRunning()) {
+					Wnn.c(mTimeoutCheckTask, Task::cancel);
+				}
 			}
 			try {
 				onLaunch();
-				mRequestAction.execute(mIntermediateCallback, timeout);
+				mRequestAction.execute(new IntermediateCallback(generation), timeout);
+				mActionState = ACTION_EXECUTED;
+				RequestStatus status = getStatus();
+				if ((status == RequestStatus.Canceled || status == RequestStatus.Timeout) && claimActionCancel()) {
+					//concluded by cancel or timeout while launching, before the action could be canceled
+					try {
+						mRequestAction.cancel();
+					} catch (Exception e) {
+						Logger.printException(TAG, new RuntimeException(String.format("Error canceling simple request tagged %s on %s while launching, calling chain: %s", getTag(), status, generateCallChainInfo()), e));
+					}
+				}
 			} catch (Exception e) {
-				if (!isRequestRunning()) {
+				Exception exp = new RequestException(() -> String.format("Error launching simple request tagged: %s", getTag()), e);
+				if (!concludeException(exp)) {
 					return;
 				}
 				Wnn.c(mTimeoutCheckTask, Task::cancel);
-				Exception exp = new RuntimeException(String.format("Error launching simple request tagged: %s", getTag()), e);
-				setResultException(exp);
-				setStatus(RequestStatus.Exception);
 				try {
-					callback.onException(exp);
+					mCallback.onException(exp);
 				} catch (Exception ee) {
 					//ignore
 				}
@@ -130,29 +160,38 @@ public class SimpleRequest<T> extends Request<T> {
 
 	@Override
 	public void cancel() {
-		synchronized (mRequestLock) {
-			if (!isRequestRunning()) {
-				return;
-			}
-			mCancelingActionFlag = true;
+		if (!concludeStatus(RequestStatus.Canceled)) {
+			return;
+		}
+		Wnn.c(mTimeoutCheckTask, Task::cancel);
+		Exception exceptionCanceling = null;
+		if (claimActionCancel()) {
 			try {
 				mRequestAction.cancel();
 			} catch (Exception e) {
-				throw new RuntimeException(String.format("Error canceling simple request tagged %s, calling chain: %s", getTag(), generateCallChainInfo()), e);
-			} finally {
-				mCancelingActionFlag = false;
-			}
-			if (!isRequestRunning()) {
-				return;
-			}
-			Wnn.c(mTimeoutCheckTask, Task::cancel);
-			setStatus(RequestStatus.Canceled);
-			try {
-				mCallback.onCanceled();
-			} catch (Exception e) {
-				//ignore
+				exceptionCanceling = e;
 			}
 		}
+		try {
+			mCallback.onCanceled();
+		} catch (Exception e) {
+			//ignore
+		}
+		if (exceptionCanceling != null) {
+			throw new RuntimeException(String.format("Error canceling simple request tagged %s, calling chain: %s", getTag(), generateCallChainInfo()), exceptionCanceling);
+		}
+	}
+
+	private boolean claimActionCancel() {
+		return ACTION_STATE_UPDATER.compareAndSet(this, ACTION_EXECUTED, ACTION_CANCELED);
+	}
+
+	@Override
+	protected void onReset() {
+		Wnn.c(mTimeoutCheckTask, Task::cancel);
+		mTimeoutCheckTask = null;
+		mCallback = null;
+		mActionState = ACTION_IDLE;
 	}
 
 	@Override
@@ -0,0 +1,473 @@
+package com.macfred.util.utils;
+
+import com.macfred.util.Logger;
+import com.macfred.util.function.BiConsumer;
+import com.macfred.util.function.Callback;
+import com.macfred.util.function.Function;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Execution of a decision graph compiled once into an immutable {@link Template}, executions of the same template share the
+ * compiled steps and can run concurrently. An execution only keeps its current step, the request of a step is generated from
+ * the input passed by the previous decision, and the decision of a step is made on the result value of that request.
+ * A step request concluded abnormally concludes the execution.
+ */
+public class TemplateDecisionRequest<I, T> extends Request<T> {
+	private static final String TAG = TemplateDecisionRequest.class.getSimpleName();
+	private final Template<I, T> mTemplate;
+	private final I mInput;
+	private volatile Task mTimeoutCheckTask;
+	private Callback<T> mCallback;
+	private volatile StepExecution mCurrentStep;
+	private int mStepCount;
+	private Step mNextStep;
+	private Object mNextInput;
+	private boolean mStepping;
+
+	private TemplateDecisionRequest(Template<I, T> template, I input) {
+		mTemplate = template;
+		mInput = input;
+	}
+
+	@Override
+	public void launch(Callback<T> callback, long timeout) {
+		synchronized (mRequestLock) {
+			if (!isRequestIdle()) {
+				throw new RuntimeException(String.format("Launch a template decision request tagged %s, which is in status %s", getTag(), getStatus()));
+			}
+			Objects.requireNonNull(callback);
+			mCallback = dispatchCallback(callback);
+			setStatus(RequestStatus.Pending);
+			timeout = Math.max(timeout, Request.TIMEOUT_UNLIMITED);
+			setTimeout(timeout);
+			setLaunchTime(System.currentTimeMillis());
+			if (timeout > 0 && !isDeadlineShared()) {
+				mTimeoutCheckTask = scheduleTaskDelayed(
+						() -> {
+							if (!concludeStatus(RequestStatus.Timeout)) {
+								return;
+							}
+							cancelCurrentStep("reaching timeout");
+							try {
+								mCallback.onTimeout();
+							} catch (Exception e) {
+								//ignore
+							}
+						},
+						timeout
+				);
+			}
+			try {
+				onLaunch();
+				transit(mTemplate.mInitialStep, mInput);
+			} catch (Exception e) {
+				if (!isRequestRunning()) {
+					return;
+				}
+				concludeWithException(new RequestException(() -> String.format("Error launching template decision request tagged: %s", getTag()), e));
+			}
+		}
+	}
+
+	private void transit(Step step, Object input) {
+		mNextStep = step;
+		mNextInput = input;
+		if (mStepping) {
+			return;
+		}
+		mStepping = true;
+		try {
+			while (isRequestRunning() && mNextStep != null) {
+				Step nextStep = mNextStep;
+				Object nextInput = mNextInput;
+				mNextStep = null;
+				mNextInput = null;
+				execute(nextStep, nextInput);
+			}
+		} finally {
+			mStepping = false;
+		}
+	}
+
+	private void execute(Step step, Object input) {
+		Request<Object> request;
+		try {
+			request = step.mRequestGenerator.apply(input);
+			if (request == null) {
+				concludeWithException(new RuntimeException(String.format("Failed to generate request for step %s", step.mName)));
+				return;
+			}
+		} catch (Exception e) {
+			concludeWithException(new RequestException(() -> String.format("Error generating request for step %s", step.mName), e));
+			return;
+		}
+		StepExecution stepExecution = new StepExecution(step, request);
+		mCurrentStep = stepExecution;
+		mStepCount++;
+		request.setupCaller(this);
+		request.setTaskScheduler(getTaskScheduler());
+		try {
+			request.launch(stepExecution, propagateDeadline(request, Request.TIMEOUT_UNLIMITED));
+			if (!isRequestRunning() && request.isRequestRunning()) {
+				//concluded by cancel or timeout while launching
+				request.cancel();
+			}
+		} catch (Exception e) {
+			if (!isRequestRunning()) {
+				//ignore
+				return;
+			}
+			concludeWithException(new RequestException(() -> String.format("Error launching request of step %s", step.mName), e));
+		}
+	}
+
+	private void concludeWithException(Exception exception) {
+		if (!concludeException(exception)) {
+			return;
+		}
+		Wnn.c(mTimeoutCheckTask, Task::cancel);
+		cancelCurrentStep("failure");
+		try {
+			mCallback.onException(exception);
+		} catch (Exception e) {
+			//ignore
+		}
+	}
+
+	private void cancelCurrentStep(String reason) {
+		StepExecution currentStep = mCurrentStep;
+		if (currentStep == null || !currentStep.mRequest.isRequestRunning()) {
+			return;
+		}
+		try {
+			currentStep.mRequest.cancel();
+		} catch (Exception e) {
+			Logger.printException(TAG, new RuntimeException(String.format("Error canceling step %s for template decision request tagged %s on %s, calling chain: %s", currentStep.mStep.mName, getTag(), reason, generateCallChainInfo()), e));
+		}
+	}
+
+	@Override
+	public void cancel() {
+		if (!concludeStatus(RequestStatus.Canceled)) {
+			return;
+		}
+		Wnn.c(mTimeoutCheckTask, Task::cancel);
+		StepExecution currentStep = mCurrentStep;
+		Exception exceptionCanceling = null;
+		try {
+			if (currentStep != null && currentStep.mRequest.isRequestRunning()) {
+				currentStep.mRequest.cancel();
+			}
+		} catch (Exception e) {
+			exceptionCanceling = e;
+		}
+		try {
+			mCallback.onCanceled();
+		} catch (Exception e) {
+			//ignore
+		}
+		if (exceptionCanceling != null) {
+			throw new RequestException(() -> String.format("Error canceling step %s when cancel template decision request tagged %s", currentStep.mStep.mName, getTag()), exceptionCanceling);
+		}
+	}
+
+	public I getInput() {
+		return mInput;
+	}
+
+	@Override
+	protected String generateCallingInfo() {
+		return String.format("(Template Decision Request) %s", getTag());
+	}
+
+	@Override
+	protected List<Request<?>> getChildRequests() {
+		StepExecution currentStep = mCurrentStep;
+		if (currentStep == null) {
+			return Collections.emptyList();
+		}
+		return Collections.singletonList(currentStep.mRequest);
+	}
+
+	@Override
+	public String dumpCallingStatus() {
+		synchronized (mRequestLock) {
+			RequestStatus status = getStatus();
+			String content = "";
+			switch (status) {
+				case Pending:
+					content = String.format("Running: %sms remains", getTimeoutRemains());
+					break;
+				case Idle:
+				case Timeout:
+				case Canceled:
+					content = status.name();
+					break;
+				case Done:
+					content = String.format("Done: result {%s}", printResultValue());
+					break;
+				case Exception:
+					content = String.format("Exception: %s", Wnn.f(getResultException(), Exception::getMessage));
+					break;
+			}
+			List<String> stepStatus = new ArrayList<>();
+			StepExecution currentStep = mCurrentStep;
+			if (currentStep != null) {
+				stepStatus.add(concatDumpTree(String.format("(Step %s) #%s", currentStep.mStep.mName, mStepCount), Collections.singletonList(currentStep.mRequest.dumpCallingStatus())));
+			}
+			return concatDumpTree(String.format("%s:: %s", generateCallingInfo(), content), stepStatus);
+		}
+	}
+
+	/**
+	 * Decision made on the result value of a step, only the first decision of a step takes effect.
+	 */
+	public interface Transition<T> {
+		/**
+		 * @param step  name of the next step, which must be declared as a successor of the current step
+		 * @param input input for generating the request of the next step
+		 */
+		void next(String step, Object input);
+
+		void finish(T result);
+
+		void fail(Exception e);
+	}
+
+	private class StepExecution implements Callback<Object>, Transition<T> {
+		private final Step mStep;
+		private final Request<Object> mRequest;
+		private boolean mDecided;
+
+		private StepExecution(Step step, Request<Object> request) {
+			mStep = step;
+			mRequest = request;
+		}
+
+		private boolean isDecidable() {
+			return isRequestRunning() && mCurrentStep == this && !mDecided;
+		}
+
+		private void handleResult() {
+			synchronized (mRequestLock) {
+				if (!isDecidable() || mRequest.isRequestRunning()) {
+					return;
+				}
+				switch (mRequest.getStatus()) {
+					case Done:
+						try {
+							mStep.mDecider.accept(mRequest.getResultValue(), this);
+						} catch (Exception e) {
+							if (!isRequestRunning()) {
+								return;
+							}
+							concludeWithException(new RequestException(() -> String.format("Error making decision on step %s", mStep.mName), e));
+						}
+						return;
+					case Exception:
+						concludeWithException(new RequestException(() -> String.format("Step %s encountered failure", mStep.mName), mRequest.getResultException()));
+						return;
+					case Timeout:
+						concludeWithException(new RequestException(() -> String.format("Step %s timeout", mStep.mName)));
+						return;
+					default:
+						concludeWithException(new RequestException(() -> String.format("Step %s cancel abnormally", mStep.mName)));
+				}
+			}
+		}
+
+		@Override
+		public void accept(Object ret) {
+			handleResult();
+		}
+
+		@Override
+		public void onCanceled() {
+			handleResult();
+		}
+
+		@Override
+		public void onException(Exception e) {
+			handleResult();
+		}
+
+		@Override
+		public void onTimeout() {
+			handleResult();
+		}
+
+		@Override
+		public void next(String step, Object input) {
+			synchronized (mRequestLock) {
+				if (!isDecidable()) {
+					return;
+				}
+				mDecided = true;
+				Step nextStep = mStep.findSuccessor(step);
+				if (nextStep == null) {
+					concludeWithException(new RuntimeException(String.format("Step %s has no successor named %s", mStep.mName, step)));
+					return;
+				}
+				transit(nextStep, input);
+			}
+		}
+
+		@Override
+		public void finish(T result) {
+			synchronized (mRequestLock) {
+				if (!isDecidable()) {
+					return;
+				}
+				mDecided = true;
+				if (!concludeDone(result)) {
+					return;
+				}
+				Wnn.c(mTimeoutCheckTask, Task::cancel);
+				try {
+					mCallback.accept(result);
+				} catch (Exception e) {
+					//ignore
+				}
+			}
+		}
+
+		@Override
+		public void fail(Exception e) {
+			synchronized (mRequestLock) {
+				if (!isDecidable()) {
+					return;
+				}
+				mDecided = true;
+				concludeWithException(new RequestException(() -> String.format("Step %s decided to fail", mStep.mName), e));
+			}
+		}
+	}
+
+	private static class Step {
+		private final String mName;
+		private final Function<Object, Request<Object>> mRequestGenerator;
+		private final BiConsumer<Object, Transition<?>> mDecider;
+		private Step[] mSuccessors;
+
+		private Step(String name, Function<Object, Request<Object>> requestGenerator, BiConsumer<Object, Transition<?>> decider) {
+			mName = name;
+			mRequestGenerator = requestGenerator;
+			mDecider = decider;
+		}
+
+		private Step findSuccessor(String name) {
+			for (Step successor : mSuccessors) {
+				if (successor.mName.equals(name)) {
+					return successor;
+				}
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Immutable compiled decision graph, see {@link Builder}.
+	 */
+	public static class Template<I, T> {
+		private final String TAG;
+		private final Step mInitialStep;
+		private final int mStepCount;
+
+		private Template(String tag, Step initialStep, int stepCount) {
+			TAG = tag;
+			mInitialStep = initialStep;
+			mStepCount = stepCount;
+		}
+
+		/**
+		 * @param input input for generating the request of the initial step
+		 */
+		public TemplateDecisionRequest<I, T> newRequest(I input) {
+			TemplateDecisionRequest<I, T> request = new TemplateDecisionRequest<>(this, input);
+			request.setTag(TAG);
+			return request;
+		}
+
+		public String getTag() {
+			return TAG;
+		}
+
+		public int getStepCount() {
+			return mStepCount;
+		}
+	}
+
+	public static class Builder<I, T> {
+		private final Map<String, StepDefinition> mStepDefinitions = new LinkedHashMap<>();
+		private final String mInitialStep;
+
+		/**
+		 * @param initialStep name of the step executed first, whose request is generated from the input of the execution
+		 */
+		public Builder(String initialStep) {
+			mInitialStep = Objects.requireNonNull(initialStep);
+		}
+
+		/**
+		 * @param requestGenerator generate the request of the step from the input passed by the previous decision
+		 * @param decider          make decision on the result value of the step request
+		 * @param successors       names of the steps this step may transit to
+		 */
+		@SuppressWarnings("unchecked")
+		public <V, R> Builder<I, T> addStep(String name, Function<V, ? extends Request<R>> requestGenerator, BiConsumer<R, Transition<T>> decider, String... successors) {
+			Objects.requireNonNull(name);
+			Objects.requireNonNull(requestGenerator);
+			Objects.requireNonNull(decider);
+			if (mStepDefinitions.containsKey(name)) {
+				throw new RuntimeException(String.format("Add step %s which is already added", name));
+			}
+			mStepDefinitions.put(name, new StepDefinition(
+					(Function<Object, Request<Object>>) (Function<?, ?>) requestGenerator,
+					(BiConsumer<Object, Transition<?>>) (BiConsumer<?, ?>) decider,
+					successors.clone()
+			));
+			return this;
+		}
+
+		public Template<I, T> build(String tag) {
+			Map<String, Step> steps = new LinkedHashMap<>();
+			for (Map.Entry<String, StepDefinition> entry : mStepDefinitions.entrySet()) {
+				steps.put(entry.getKey(), new Step(entry.getKey(), entry.getValue().mRequestGenerator, entry.getValue().mDecider));
+			}
+			for (Map.Entry<String, StepDefinition> entry : mStepDefinitions.entrySet()) {
+				String[] successorNames = entry.getValue().mSuccessors;
+				Step[] successors = new Step[successorNames.length];
+				for (int i = 0; i < successorNames.length; i++) {
+					successors[i] = steps.get(successorNames[i]);
+					if (successors[i] == null) {
+						throw new RuntimeException(String.format("Step %s declares unknown successor %s", entry.getKey(), successorNames[i]));
+					}
+				}
+				steps.get(entry.getKey()).mSuccessors = successors;
+			}
+			Step initialStep = steps.get(mInitialStep);
+			if (initialStep == null) {
+				throw new RuntimeException(String.format("Initial step %s is not added", mInitialStep));
+			}
+			return new Template<>(tag, initialStep, steps.size());
+		}
+
+		private static class StepDefinition {
+			private final Function<Object, Request<Object>> mRequestGenerator;
+			private final BiConsumer<Object, Transition<?>> mDecider;
+			private final String[] mSuccessors;
+
+			private StepDefinition(Function<Object, Request<Object>> requestGenerator, BiConsumer<Object, Transition<?>> decider, String[] successors) {
+				mRequestGenerator = requestGenerator;
+				mDecider = decider;
+				mSuccessors = successors;
+			}
+		}
+	}
+}
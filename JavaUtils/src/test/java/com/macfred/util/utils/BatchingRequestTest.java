@@ -0,0 +1,176 @@
+package com.macfred.util.utils;
+
+import com.macfred.util.function.Callback;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BatchingRequestTest {
+
+    private static Request<Map<Integer, Integer>> newBatchRequest(Timer timer, long delay, Collection<Integer> keys) {
+        return new SimpleRequest<>(
+                new SimpleRequest.RequestAction<Map<Integer, Integer>>() {
+                    private TimerTask mTask;
+
+                    @Override
+                    public void execute(Callback<Map<Integer, Integer>> callback, long timeout) {
+                        mTask = new TimerTask() {
+                            @Override
+                            public void run() {
+                                Map<Integer, Integer> values = new HashMap<>();
+                                for (Integer key : keys) {
+                                    values.put(key, key * 2);
+                                }
+                                callback.accept(values);
+                            }
+                        };
+                        timer.schedule(mTask, delay);
+                    }
+
+                    @Override
+                    public void cancel() {
+                        mTask.cancel();
+                    }
+                }
+        );
+    }
+
+    @Test
+    public void testBatch() throws InterruptedException {
+        Timer timer = new Timer();
+        List<Integer> batchSizes = new ArrayList<>();
+        BatchingRequest.Batcher<Integer, Integer> batcher = new BatchingRequest.Batcher<>(
+                "batch",
+                keys -> {
+                    batchSizes.add(keys.size());
+                    return newBatchRequest(timer, 20, keys);
+                },
+                100,
+                50
+        );
+        int total = 250;
+        Semaphore semaphore = new Semaphore(0);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < total; i++) {
+            int key = i;
+            batcher.newRequest(key).launch(
+                    val -> {
+                        Assert.assertEquals(key * 2, val.intValue());
+                        semaphore.release();
+                    },
+                    5000
+            );
+        }
+        //duplicated keys share the slot of the key in the pending batch
+        batcher.newRequest(249).launch(val -> semaphore.release(), 5000);
+        Assert.assertTrue(semaphore.tryAcquire(total + 1, 5, TimeUnit.SECONDS));
+        System.out.println(String.format("%s batching requests done in %sms with batches %s", total + 1, System.currentTimeMillis() - now, batchSizes));
+        Assert.assertEquals(3, batcher.getBatchCount());
+        Assert.assertEquals(100, batchSizes.get(0).intValue());
+        Assert.assertEquals(100, batchSizes.get(1).intValue());
+        Assert.assertEquals(50, batchSizes.get(2).intValue());
+        timer.cancel();
+    }
+
+    @Test
+    public void testCancel() throws InterruptedException {
+        Timer timer = new Timer();
+        List<Request<Map<Integer, Integer>>> batches = new ArrayList<>();
+        BatchingRequest.Batcher<Integer, Integer> batcher = new BatchingRequest.Batcher<>(
+                "cancel",
+                keys -> {
+                    Request<Map<Integer, Integer>> request = newBatchRequest(timer, 3000, keys);
+                    batches.add(request);
+                    return request;
+                },
+                100,
+                50
+        );
+        Callback<Integer> callback = integer -> {
+        };
+        BatchingRequest<Integer, Integer> pending = batcher.newRequest(0);
+        pending.launch(callback, 5000);
+        pending.cancel();
+        Thread.sleep(200);
+        Assert.assertEquals(0, batcher.getBatchCount());
+
+        BatchingRequest<Integer, Integer> first = batcher.newRequest(1);
+        BatchingRequest<Integer, Integer> second = batcher.newRequest(2);
+        first.launch(callback, 5000);
+        second.launch(callback, 5000);
+        batcher.flush();
+        Assert.assertEquals(1, batches.size());
+        first.cancel();
+        Assert.assertTrue(batches.get(0).isRequestRunning());
+        second.cancel();
+        Assert.assertEquals(Request.RequestStatus.Canceled, batches.get(0).getStatus());
+        timer.cancel();
+    }
+
+    private static boolean runsOnOtherThread(Runnable runnable) {
+        Thread thread = new Thread(runnable);
+        thread.start();
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        return !thread.isAlive();
+    }
+
+    @Test
+    public void testGeneratorOutsideLock() throws InterruptedException {
+        Timer timer = new Timer();
+        List<BatchingRequest.Batcher<Integer, Integer>> batcherHolder = new ArrayList<>();
+        AtomicInteger blocked = new AtomicInteger();
+        BatchingRequest.Batcher<Integer, Integer> batcher = new BatchingRequest.Batcher<>(
+                "lock",
+                keys -> {
+                    if (!runsOnOtherThread(() -> batcherHolder.get(0).getBatchCount())) {
+                        blocked.incrementAndGet();
+                    }
+                    if (keys.contains(0)) {
+                        throw new RuntimeException("Failed to generate batch request");
+                    }
+                    return newBatchRequest(timer, 20, keys);
+                },
+                1,
+                50
+        );
+        batcherHolder.add(batcher);
+        Semaphore semaphore = new Semaphore(0);
+        batcher.newRequest(0).launch(
+                new Callback<Integer>() {
+                    @Override
+                    public void accept(Integer integer) {
+                        Assert.fail();
+                    }
+
+                    @Override
+                    public void onException(Exception e) {
+                        if (!runsOnOtherThread(() -> batcher.getBatchCount())) {
+                            blocked.incrementAndGet();
+                        }
+                        semaphore.release();
+                    }
+                },
+                5000
+        );
+        batcher.newRequest(1).launch(val -> semaphore.release(), 5000);
+        Assert.assertTrue(semaphore.tryAcquire(2, 5, TimeUnit.SECONDS));
+        Assert.assertEquals(0, blocked.get());
+        Assert.assertEquals(1, batcher.getBatchCount());
+        timer.cancel();
+    }
+}
@@ -0,0 +1,162 @@
+package com.macfred.util.utils;
+
+import com.macfred.util.function.Callback;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Timer;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CoalescingRequestTest {
+
+    @Test
+    public void testCoalesce() throws InterruptedException {
+        Timer timer = new Timer();
+        AtomicInteger generated = new AtomicInteger();
+        CoalescingRequest.Registry<String, Integer> registry = new CoalescingRequest.Registry<>(
+                "coalesce",
+                key -> TestRequests.newDelayedRequest(timer, 100, generated.incrementAndGet())
+        );
+        int waiters = 100;
+        Semaphore semaphore = new Semaphore(0);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < waiters; i++) {
+            registry.newRequest("a").launch(
+                    val -> {
+                        Assert.assertEquals(1, val.intValue());
+                        semaphore.release();
+                    },
+                    5000
+            );
+        }
+        Assert.assertEquals(1, registry.getInFlightCount());
+        Assert.assertEquals(waiters, registry.getWaiterCount("a"));
+        Assert.assertTrue(semaphore.tryAcquire(waiters, 5, TimeUnit.SECONDS));
+        System.out.println(String.format("%s coalesced requests done in %sms", waiters, System.currentTimeMillis() - now));
+        Assert.assertEquals(1, generated.get());
+        Assert.assertEquals(0, registry.getInFlightCount());
+
+        CoalescingRequest<String, Integer> later = registry.newRequest("a");
+        later.launch(val -> semaphore.release(), 5000);
+        Assert.assertTrue(semaphore.tryAcquire(5, TimeUnit.SECONDS));
+        Assert.assertEquals(2, generated.get());
+        Assert.assertEquals(2, later.getResultValue().intValue());
+        System.out.println(later.dumpCallingStatus());
+        timer.cancel();
+    }
+
+    @Test
+    public void testCancel() throws InterruptedException {
+        Timer timer = new Timer();
+        List<Request<Integer>> shared = new ArrayList<>();
+        CoalescingRequest.Registry<String, Integer> registry = new CoalescingRequest.Registry<>(
+                "cancel",
+                key -> {
+                    Request<Integer> request = TestRequests.newDelayedRequest(timer, 3000, 0);
+                    shared.add(request);
+                    return request;
+                }
+        );
+        CoalescingRequest<String, Integer> first = registry.newRequest("b");
+        CoalescingRequest<String, Integer> second = registry.newRequest("b");
+        CoalescingRequest<String, Integer> third = registry.newRequest("b");
+        Semaphore semaphore = new Semaphore(0);
+        Callback<Integer> callback = new Callback<Integer>() {
+            @Override
+            public void accept(Integer integer) {
+
+            }
+
+            @Override
+            public void onCanceled() {
+                semaphore.release();
+            }
+
+            @Override
+            public void onTimeout() {
+                semaphore.release();
+            }
+        };
+        first.launch(callback, 5000);
+        second.launch(callback, 5000);
+        third.launch(callback, 100);
+        Assert.assertEquals(1, shared.size());
+        first.cancel();
+        Assert.assertTrue(shared.get(0).isRequestRunning());
+        Assert.assertTrue(semaphore.tryAcquire(2, 1, TimeUnit.SECONDS));
+        Assert.assertEquals(Request.RequestStatus.Timeout, third.getStatus());
+        Assert.assertTrue(shared.get(0).isRequestRunning());
+        second.cancel();
+        Assert.assertTrue(semaphore.tryAcquire(1, TimeUnit.SECONDS));
+        Assert.assertEquals(Request.RequestStatus.Canceled, shared.get(0).getStatus());
+        Assert.assertEquals(0, registry.getInFlightCount());
+        timer.cancel();
+    }
+
+    @Test
+    public void testGeneratorOutsideLock() throws InterruptedException {
+        Timer timer = new Timer();
+        AtomicInteger generated = new AtomicInteger();
+        Semaphore semaphore = new Semaphore(0);
+        List<CoalescingRequest.Registry<String, Integer>> registryHolder = new ArrayList<>();
+        List<Thread> joiningThreads = new ArrayList<>();
+        CoalescingRequest.Registry<String, Integer> registry = new CoalescingRequest.Registry<>(
+                "lock",
+                key -> {
+                    generated.incrementAndGet();
+                    if ("fail".equals(key)) {
+                        throw new RuntimeException("Failed to generate shared request");
+                    }
+                    //attaching to the flight being generated must not wait for the generator
+                    Thread joining = new Thread(() -> registryHolder.get(0).newRequest(key).launch(
+                            val -> {
+                                Assert.assertEquals(1, val.intValue());
+                                semaphore.release();
+                            },
+                            5000
+                    ));
+                    joiningThreads.add(joining);
+                    joining.start();
+                    try {
+                        joining.join(1000);
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                    return TestRequests.newDelayedRequest(timer, 20, 1);
+                }
+        );
+        registryHolder.add(registry);
+        registry.newRequest("a").launch(
+                val -> {
+                    Assert.assertEquals(1, val.intValue());
+                    semaphore.release();
+                },
+                5000
+        );
+        Assert.assertFalse(joiningThreads.get(0).isAlive());
+        Assert.assertEquals(2, registry.getWaiterCount("a"));
+        registry.newRequest("fail").launch(
+                new Callback<Integer>() {
+                    @Override
+                    public void accept(Integer integer) {
+                        Assert.fail();
+                    }
+
+                    @Override
+                    public void onException(Exception e) {
+                        semaphore.release();
+                    }
+                },
+                5000
+        );
+        Assert.assertTrue(semaphore.tryAcquire(3, 5, TimeUnit.SECONDS));
+        Assert.assertEquals(2, generated.get());
+        Assert.assertEquals(0, registry.getInFlightCount());
+        timer.cancel();
+    }
+}
@@ -0,0 +1,121 @@
+package com.macfred.util.utils;
+
+import com.macfred.util.function.Callback;
+import com.macfred.util.ref.Ref;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CompletionStageRequestTest {
+
+    private static Request<Integer> newPendingRequest(AtomicInteger canceled) {
+        return new SimpleRequest<>(
+                new SimpleRequest.RequestAction<Integer>() {
+                    @Override
+                    public void execute(Callback<Integer> callback, long timeout) {
+
+                    }
+
+                    @Override
+                    public void cancel() {
+                        canceled.incrementAndGet();
+                    }
+                }
+        );
+    }
+
+    @Test
+    public void testFromCompletionStage() throws InterruptedException {
+        CompletableFuture<Integer> future = new CompletableFuture<>();
+        Request<Integer> request = Request.fromCompletionStage(future);
+        Ref<Integer> result = new Ref<>();
+        request.launch(val -> result.value = val);
+        Assert.assertEquals(Request.RequestStatus.Pending, request.getStatus());
+        future.complete(3);
+        Assert.assertEquals(Request.RequestStatus.Done, request.getStatus());
+        Assert.assertEquals(3, result.value.intValue());
+
+        CompletableFuture<Integer> failing = new CompletableFuture<>();
+        Request<Integer> failingRequest = Request.fromCompletionStage(failing.thenApply(val -> val + 1));
+        failingRequest.launch(
+                new Callback<Integer>() {
+                    @Override
+                    public void accept(Integer integer) {
+                        Assert.fail();
+                    }
+
+                    @Override
+                    public void onException(Exception e) {
+                        System.out.println(e.getMessage());
+                    }
+                }
+        );
+        failing.completeExceptionally(new IllegalStateException("Test exception"));
+        Assert.assertEquals(Request.RequestStatus.Exception, failingRequest.getStatus());
+        Assert.assertTrue(failingRequest.getResultException() instanceof IllegalStateException);
+
+        AtomicInteger supplied = new AtomicInteger();
+        CompletableFuture<Integer> lazy = new CompletableFuture<>();
+        CompletionStageRequest<Integer> lazyRequest = new CompletionStageRequest<>(() -> {
+            supplied.incrementAndGet();
+            return lazy;
+        });
+        Assert.assertEquals(0, supplied.get());
+        lazyRequest.launch(val -> Assert.fail());
+        Assert.assertEquals(1, supplied.get());
+        lazyRequest.cancel();
+        Assert.assertTrue(lazy.isCancelled());
+
+        CompletableFuture<Integer> slow = new CompletableFuture<>();
+        Request<Integer> slowRequest = Request.fromCompletionStage(slow);
+        CompletableFuture<Integer> slowFuture = slowRequest.toCompletableFuture(50);
+        try {
+            slowFuture.get(5, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof TimeoutException);
+        } catch (TimeoutException e) {
+            Assert.fail();
+        }
+        System.out.println(slowRequest.dumpCallingStatus());
+        Assert.assertEquals(Request.RequestStatus.Timeout, slowRequest.getStatus());
+        Assert.assertTrue(slow.isCancelled());
+    }
+
+    @Test
+    public void testToCompletableFuture() throws Exception {
+        CompletableFuture<Integer> source = new CompletableFuture<>();
+        CompletableFuture<Integer> future = Request.fromCompletionStage(source).toCompletableFuture(5000);
+        CompletableFuture<Integer> doubled = future.thenApply(val -> val * 2);
+        source.complete(21);
+        Assert.assertEquals(42, doubled.get(5, TimeUnit.SECONDS).intValue());
+
+        //cancel the future cancels the request
+        AtomicInteger canceled = new AtomicInteger();
+        Request<Integer> request = newPendingRequest(canceled);
+        CompletableFuture<Integer> requestFuture = request.toCompletableFuture();
+        Assert.assertTrue(requestFuture.cancel(false));
+        Assert.assertEquals(Request.RequestStatus.Canceled, request.getStatus());
+        Assert.assertEquals(1, canceled.get());
+
+        //cancel the request cancels the future
+        Request<Integer> another = newPendingRequest(canceled);
+        CompletableFuture<Integer> anotherFuture = another.toCompletableFuture();
+        another.cancel();
+        Assert.assertTrue(anotherFuture.isCancelled());
+        try {
+            anotherFuture.join();
+            Assert.fail();
+        } catch (CancellationException e) {
+            //expected
+        }
+        Assert.assertEquals(2, canceled.get());
+    }
+}
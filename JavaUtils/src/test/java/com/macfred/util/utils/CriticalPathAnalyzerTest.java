@@ -0,0 +1,49 @@
+package com.macfred.util.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Timer;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+public class CriticalPathAnalyzerTest {
+
+    @Test
+    public void testAnalyze() throws InterruptedException {
+        Timer timer = new Timer();
+        ParallelRequest<Integer> parallelRequest = new ParallelRequest<>(
+                (subActions, resultValue, resultException) -> {
+                    resultValue.value = subActions.size();
+                    return Request.RequestStatus.Done;
+                }
+        );
+        parallelRequest.setTag("parallel");
+        parallelRequest.setupSubActions(TestRequests.newTaggedRequest(timer, 200, "slow"), TestRequests.newTaggedRequest(timer, 30, "fast"), TestRequests.newTaggedRequest(timer, 60, "medium"));
+        SerialRequest<Integer> serialRequest = new SerialRequest<>(subActions -> subActions.size());
+        serialRequest.setTag("serial");
+        serialRequest.setupSubActions(TestRequests.newTaggedRequest(timer, 50, "first"), parallelRequest, TestRequests.newTaggedRequest(timer, 20, "last"));
+        Semaphore semaphore = new Semaphore(0);
+        serialRequest.launch(val -> semaphore.release(), 5000);
+        Assert.assertTrue(semaphore.tryAcquire(5, TimeUnit.SECONDS));
+
+        CriticalPathAnalyzer.CriticalPath criticalPath = CriticalPathAnalyzer.analyze(serialRequest);
+        System.out.println(criticalPath);
+        List<String> tags = new ArrayList<>();
+        for (CriticalPathAnalyzer.Segment segment : criticalPath.getSegments()) {
+            tags.add(segment.getRequest().getTag());
+            Assert.assertEquals(segment.getDuration(), segment.getSelfTime() + segment.getChildWaitTime());
+        }
+        List<String> expected = new ArrayList<>();
+        expected.add("serial");
+        expected.add("first");
+        expected.add("parallel");
+        expected.add("slow");
+        expected.add("last");
+        Assert.assertEquals(expected, tags);
+        Assert.assertEquals("slow", criticalPath.getBottleneck().getRequest().getTag());
+        timer.cancel();
+    }
+}
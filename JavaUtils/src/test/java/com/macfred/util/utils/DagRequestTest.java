@@ -0,0 +1,80 @@
+package com.macfred.util.utils;
+
+import com.macfred.util.function.Callback;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Timer;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+public class DagRequestTest {
+
+    @Test
+    public void testDiamond() throws InterruptedException {
+        Timer timer = new Timer();
+        DagRequest<Integer> request = new DagRequest<>(results -> (Integer) results.get("d"));
+        request.setTag("diamond");
+        request.addNode("a", TestRequests.newDelayedRequest(timer, 50, 1));
+        request.addNode("b", results -> TestRequests.newDelayedRequest(timer, 100, (Integer) results.get("a") + 1), "a");
+        request.addNode("c", results -> TestRequests.newDelayedRequest(timer, 100, (Integer) results.get("a") + 2), "a");
+        request.addNode("d", results -> TestRequests.newDelayedRequest(timer, 50, (Integer) results.get("b") * (Integer) results.get("c")), "b", "c");
+        try {
+            request.addNode("e", TestRequests.newDelayedRequest(timer, 50, 0), "f");
+            Assert.fail();
+        } catch (RuntimeException e) {
+            //expected, dependencies must be added first
+        }
+        System.out.println(request.dumpCallingStatus());
+        Semaphore semaphore = new Semaphore(0);
+        long now = System.currentTimeMillis();
+        request.launch(val -> semaphore.release(), 5000);
+        Assert.assertTrue(semaphore.tryAcquire(5, TimeUnit.SECONDS));
+        long elapsed = System.currentTimeMillis() - now;
+        System.out.println(String.format("Diamond dag done in %sms", elapsed));
+        System.out.println(request.dumpCallingStatus());
+        Assert.assertEquals(6, request.getResultValue().intValue());
+        Assert.assertEquals(4, request.getChildRequests().size());
+        //b and c run side by side
+        Assert.assertTrue(elapsed < 300);
+        timer.cancel();
+    }
+
+    @Test
+    public void testFailure() throws InterruptedException {
+        Timer timer = new Timer();
+        DagRequest<Integer> request = new DagRequest<>(results -> 0);
+        request.setTag("failure");
+        request.addNode("a", TestRequests.newDelayedRequest(timer, 50, 1));
+        request.addNode("b", TestRequests.newDelayedRequest(timer, 50, 0, true), "a");
+        Request<Integer> c = TestRequests.newDelayedRequest(timer, 1000, 2);
+        request.addNode("c", c, "a");
+        request.addNode("d", results -> {
+            Assert.fail();
+            return null;
+        }, "b", "c");
+        Semaphore semaphore = new Semaphore(0);
+        request.launch(
+                new Callback<Integer>() {
+                    @Override
+                    public void accept(Integer integer) {
+                        Assert.fail();
+                    }
+
+                    @Override
+                    public void onException(Exception e) {
+                        System.out.println(e.getMessage());
+                        semaphore.release();
+                    }
+                },
+                5000
+        );
+        Assert.assertTrue(semaphore.tryAcquire(5, TimeUnit.SECONDS));
+        System.out.println(request.dumpCallingStatus());
+        Assert.assertEquals(Request.RequestStatus.Exception, request.getStatus());
+        Assert.assertEquals(Request.RequestStatus.Canceled, c.getStatus());
+        Assert.assertEquals(3, request.getChildRequests().size());
+        timer.cancel();
+    }
+}
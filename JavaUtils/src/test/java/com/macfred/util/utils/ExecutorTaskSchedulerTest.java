@@ -0,0 +1,89 @@
+package com.macfred.util.utils;
+
+import com.macfred.util.function.Callback;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+public class ExecutorTaskSchedulerTest {
+
+    @Test
+    public void testOverrunIsolation() throws InterruptedException {
+        ExecutorTaskScheduler scheduler = new ExecutorTaskScheduler(2, "test-scheduler");
+        CountDownLatch slowTaskRelease = new CountDownLatch(1);
+        Semaphore semaphore = new Semaphore(0);
+        scheduler.scheduleTask(
+                () -> {
+                    try {
+                        slowTaskRelease.await();
+                    } catch (InterruptedException e) {
+                        //ignore
+                    }
+                },
+                System.currentTimeMillis()
+        );
+        long now = System.currentTimeMillis();
+        scheduler.scheduleTask(semaphore::release, now + 50);
+        Assert.assertTrue(semaphore.tryAcquire(1, TimeUnit.SECONDS));
+        System.out.println(String.format("Task fired after %sms while another task is blocked", System.currentTimeMillis() - now));
+        slowTaskRelease.countDown();
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void testPurgeOnCancel() {
+        ExecutorTaskScheduler scheduler = new ExecutorTaskScheduler(1);
+        int total = 10000;
+        Request.Task[] tasks = new Request.Task[total];
+        for (int i = 0; i < total; i++) {
+            tasks[i] = scheduler.scheduleTask(() -> Assert.fail("Canceled task executed"), System.currentTimeMillis() + 60000);
+        }
+        Assert.assertEquals(total, scheduler.getQueuedTaskCount());
+        for (Request.Task task : tasks) {
+            Assert.assertTrue(task.cancel());
+        }
+        Assert.assertEquals(0, scheduler.getQueuedTaskCount());
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void testRequestTaskScheduler() throws InterruptedException {
+        ExecutorTaskScheduler scheduler = new ExecutorTaskScheduler(2, "request-scheduler");
+        Semaphore semaphore = new Semaphore(0);
+        SimpleRequest<Integer> request = new SimpleRequest<>(
+                new SimpleRequest.RequestAction<Integer>() {
+                    @Override
+                    public void execute(Callback<Integer> callback, long timeout) {
+
+                    }
+
+                    @Override
+                    public void cancel() {
+
+                    }
+                }
+        );
+        request.setTaskScheduler(scheduler);
+        request.launch(
+                new Callback<Integer>() {
+                    @Override
+                    public void accept(Integer integer) {
+
+                    }
+
+                    @Override
+                    public void onTimeout() {
+                        Assert.assertTrue(Thread.currentThread().getName().startsWith("request-scheduler"));
+                        semaphore.release();
+                    }
+                },
+                50
+        );
+        Assert.assertTrue(semaphore.tryAcquire(1, TimeUnit.SECONDS));
+        scheduler.shutdown();
+    }
+}
@@ -0,0 +1,118 @@
+package com.macfred.util.utils;
+
+import com.macfred.util.function.Callback;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class HashedWheelTaskSchedulerTest {
+
+    @Test
+    public void testSchedule() throws InterruptedException {
+        HashedWheelTaskScheduler scheduler = new HashedWheelTaskScheduler(5, 64);
+        Random random = new Random();
+        int total = 10000;
+        Semaphore semaphore = new Semaphore(0);
+        AtomicInteger early = new AtomicInteger();
+        for (int i = 0; i < total; i++) {
+            long delay = random.nextInt(1000);
+            long deadline = System.currentTimeMillis() + delay;
+            scheduler.scheduleTask(
+                    () -> {
+                        if (System.currentTimeMillis() < deadline) {
+                            early.incrementAndGet();
+                        }
+                        semaphore.release();
+                    },
+                    deadline
+            );
+        }
+        Assert.assertTrue(semaphore.tryAcquire(total, 10, TimeUnit.SECONDS));
+        Assert.assertEquals(0, early.get());
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void testCancel() throws InterruptedException {
+        HashedWheelTaskScheduler scheduler = new HashedWheelTaskScheduler(5, 64);
+        int total = 10000;
+        AtomicInteger fired = new AtomicInteger();
+        Semaphore semaphore = new Semaphore(0);
+        for (int i = 0; i < total; i++) {
+            boolean cancel = i % 2 == 0;
+            Request.Task task = scheduler.scheduleTask(
+                    () -> {
+                        fired.incrementAndGet();
+                        semaphore.release();
+                    },
+                    System.currentTimeMillis() + 200 + i % 500
+            );
+            if (cancel) {
+                Assert.assertTrue(task.cancel());
+                Assert.assertFalse(task.cancel());
+            }
+        }
+        Assert.assertTrue(semaphore.tryAcquire(total / 2, 10, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        Assert.assertEquals(total / 2, fired.get());
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void testFarFutureDeadline() throws InterruptedException {
+        HashedWheelTaskScheduler scheduler = new HashedWheelTaskScheduler(5, 64);
+        AtomicInteger fired = new AtomicInteger();
+        scheduler.scheduleTask(fired::incrementAndGet, Long.MAX_VALUE);
+        scheduler.scheduleTask(fired::incrementAndGet, System.currentTimeMillis() + Long.MAX_VALUE / 2);
+        Thread.sleep(100);
+        Assert.assertEquals(0, fired.get());
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void testDefaultScheduler() throws InterruptedException {
+        HashedWheelTaskScheduler scheduler = new HashedWheelTaskScheduler();
+        Request.TaskScheduler previous = Request.getDefaultTaskScheduler();
+        Request.setDefaultTaskScheduler(scheduler);
+        try {
+            Semaphore semaphore = new Semaphore(0);
+            SimpleRequest<Integer> request = new SimpleRequest<>(
+                    new SimpleRequest.RequestAction<Integer>() {
+                        @Override
+                        public void execute(Callback<Integer> callback, long timeout) {
+
+                        }
+
+                        @Override
+                        public void cancel() {
+
+                        }
+                    }
+            );
+            request.launch(
+                    new Callback<Integer>() {
+                        @Override
+                        public void accept(Integer integer) {
+
+                        }
+
+                        @Override
+                        public void onTimeout() {
+                            semaphore.release();
+                        }
+                    },
+                    100
+            );
+            Assert.assertTrue(semaphore.tryAcquire(5, TimeUnit.SECONDS));
+            Assert.assertEquals(Request.RequestStatus.Timeout, request.getStatus());
+        } finally {
+            Request.setDefaultTaskScheduler(previous);
+            scheduler.shutdown();
+        }
+    }
+}
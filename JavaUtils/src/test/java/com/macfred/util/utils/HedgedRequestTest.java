@@ -0,0 +1,121 @@
+package com.macfred.util.utils;
+
+import com.macfred.util.function.Callback;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Timer;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+public class HedgedRequestTest {
+
+    @Test
+    public void testHedge() throws InterruptedException {
+        Timer timer = new Timer();
+        List<Request<Integer>> attempts = new ArrayList<>();
+        long[] delays = new long[]{3000, 50};
+        List<Long> latencies = new ArrayList<>();
+        HedgedRequest<Integer> request = new HedgedRequest<>(
+                () -> {
+                    int index = attempts.size();
+                    Request<Integer> attempt = TestRequests.newDelayedRequest(timer, delays[index], index, false);
+                    attempts.add(attempt);
+                    return attempt;
+                },
+                new HedgedRequest.HedgeDelayPolicy() {
+                    @Override
+                    public long getHedgeDelay() {
+                        return 100;
+                    }
+
+                    @Override
+                    public void onAttemptDone(long latency) {
+                        latencies.add(latency);
+                    }
+                }
+        );
+        request.setTag("hedge");
+        Semaphore semaphore = new Semaphore(0);
+        long now = System.currentTimeMillis();
+        request.launch(
+                val -> {
+                    Assert.assertEquals(1, val.intValue());
+                    semaphore.release();
+                },
+                10000
+        );
+        Assert.assertTrue(semaphore.tryAcquire(1, TimeUnit.SECONDS));
+        long cost = System.currentTimeMillis() - now;
+        Assert.assertEquals(2, request.getAttemptCount());
+        Assert.assertEquals(Request.RequestStatus.Canceled, attempts.get(0).getStatus());
+        Assert.assertEquals(Request.RequestStatus.Done, attempts.get(1).getStatus());
+        //the backup won, but the sample still covers the wait for the hedge
+        Assert.assertEquals(1, latencies.size());
+        Assert.assertTrue(latencies.get(0) >= 150);
+        System.out.println(String.format("Hedged request done in %sms", cost));
+        System.out.println(request.dumpCallingStatus());
+        timer.cancel();
+    }
+
+    @Test
+    public void testNoHedgeWhenFast() throws InterruptedException {
+        Timer timer = new Timer();
+        HedgedRequest<Integer> request = new HedgedRequest<>(
+                () -> TestRequests.newDelayedRequest(timer, 20, 0, false),
+                HedgedRequest.HedgeDelayPolicy.fixed(500)
+        );
+        Semaphore semaphore = new Semaphore(0);
+        request.launch(val -> semaphore.release(), 10000);
+        Assert.assertTrue(semaphore.tryAcquire(1, TimeUnit.SECONDS));
+        Thread.sleep(600);
+        Assert.assertEquals(1, request.getAttemptCount());
+        timer.cancel();
+    }
+
+    @Test
+    public void testAllAttemptsFailed() throws InterruptedException {
+        Timer timer = new Timer();
+        HedgedRequest<Integer> request = new HedgedRequest<>(
+                () -> TestRequests.newDelayedRequest(timer, 20, 0, true),
+                HedgedRequest.HedgeDelayPolicy.fixed(500),
+                3
+        );
+        Semaphore semaphore = new Semaphore(0);
+        request.launch(
+                new Callback<Integer>() {
+                    @Override
+                    public void accept(Integer integer) {
+                        Assert.fail();
+                    }
+
+                    @Override
+                    public void onException(Exception e) {
+                        semaphore.release();
+                    }
+                },
+                10000
+        );
+        Assert.assertTrue(semaphore.tryAcquire(1, TimeUnit.SECONDS));
+        Assert.assertEquals(3, request.getAttemptCount());
+        Assert.assertEquals(Request.RequestStatus.Exception, request.getStatus());
+        timer.cancel();
+    }
+
+    @Test
+    public void testPercentileDelayPolicy() {
+        HedgedRequest.HedgeDelayPolicy policy = HedgedRequest.HedgeDelayPolicy.percentile(90, 10, 1000);
+        Assert.assertEquals(1000, policy.getHedgeDelay());
+        for (int i = 1; i <= 10; i++) {
+            policy.onAttemptDone(i);
+        }
+        Assert.assertEquals(9, policy.getHedgeDelay());
+        for (int i = 0; i < 10; i++) {
+            policy.onAttemptDone(100);
+        }
+        Assert.assertEquals(100, policy.getHedgeDelay());
+    }
+}
@@ -0,0 +1,224 @@
+package com.macfred.util.utils;
+
+import com.macfred.util.function.Callback;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Timer;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+public class LoopRequestTest {
+
+    private static Request<Integer> newImmediateRequest(int value, boolean fail) {
+        return new SimpleRequest<>(
+                new SimpleRequest.RequestAction<Integer>() {
+                    @Override
+                    public void execute(Callback<Integer> callback, long timeout) {
+                        if (fail) {
+                            callback.onException(new RuntimeException("Loop failed"));
+                        } else {
+                            callback.accept(value);
+                        }
+                    }
+
+                    @Override
+                    public void cancel() {
+
+                    }
+                }
+        );
+    }
+
+    @Test
+    public void testSynchronousLoops() {
+        int total = 100000;
+        int[] count = new int[1];
+        LoopRequest<Integer> request = new LoopRequest<>(
+                () -> {
+                    int index = count[0]++;
+                    return newImmediateRequest(index, index < total - 1);
+                },
+                Request.TIMEOUT_UNLIMITED,
+                true
+        );
+        long now = System.currentTimeMillis();
+        request.launch(val -> {
+        });
+        System.out.println(String.format("%s synchronous loops done in %sms", total, System.currentTimeMillis() - now));
+        Assert.assertEquals(Request.RequestStatus.Done, request.getStatus());
+        Assert.assertEquals(total - 1, request.getResultValue().intValue());
+    }
+
+    @Test
+    public void testPrefetch() throws InterruptedException {
+        Timer timer = new Timer();
+        List<Request<Integer>> loops = new ArrayList<>();
+        long[] delays = new long[]{100, 150, 400, 300, 1000, 1000};
+        LoopRequest<Integer> request = new LoopRequest<>(
+                () -> {
+                    int index = loops.size();
+                    //loop 3 reports before loop 2, results must still be handled in order
+                    Request<Integer> loop = TestRequests.newDelayedRequest(timer, delays[index], index, index != 2);
+                    loops.add(loop);
+                    return loop;
+                },
+                Request.TIMEOUT_UNLIMITED,
+                true
+        );
+        request.setTag("prefetch");
+        request.setPrefetchDepth(4);
+        Semaphore semaphore = new Semaphore(0);
+        long now = System.currentTimeMillis();
+        request.launch(
+                val -> {
+                    Assert.assertEquals(2, val.intValue());
+                    semaphore.release();
+                },
+                5000
+        );
+        Assert.assertTrue(semaphore.tryAcquire(5, TimeUnit.SECONDS));
+        long cost = System.currentTimeMillis() - now;
+        System.out.println(String.format("Prefetched loop request done in %sms", cost));
+        System.out.println(request.dumpCallingStatus());
+        Assert.assertTrue(cost < 900);
+        Assert.assertEquals(6, loops.size());
+        Assert.assertEquals(Request.RequestStatus.Exception, loops.get(3).getStatus());
+        Assert.assertEquals(Request.RequestStatus.Canceled, loops.get(4).getStatus());
+        Assert.assertEquals(Request.RequestStatus.Canceled, loops.get(5).getStatus());
+        timer.cancel();
+    }
+
+    @Test
+    public void testHistoryLimit() {
+        int total = 10000;
+        int limit = 10;
+        int[] count = new int[1];
+        LoopRequest<Integer> request = new LoopRequest<>(
+                () -> {
+                    int index = count[0]++;
+                    return newImmediateRequest(index, index < total - 1);
+                },
+                Request.TIMEOUT_UNLIMITED,
+                true
+        );
+        request.setTag("history");
+        request.setHistoryLimit(limit);
+        request.launch(val -> {
+        });
+        Assert.assertEquals(Request.RequestStatus.Done, request.getStatus());
+        Assert.assertEquals(total, request.getLoopCount());
+        Assert.assertEquals(total - limit, request.getDroppedLoopCount(Request.RequestStatus.Exception));
+        Assert.assertEquals(0, request.getDroppedLoopCount(Request.RequestStatus.Done));
+        List<Request<?>> history = request.getChildRequests();
+        Assert.assertEquals(limit, history.size());
+        Assert.assertEquals(Request.RequestStatus.Done, history.get(limit - 1).getStatus());
+        String dump = request.dumpCallingStatus();
+        System.out.println(dump);
+        Assert.assertTrue(dump.contains(String.format("(%s earlier loops dropped)", total - limit)));
+    }
+
+    @Test
+    public void testWorkers() throws InterruptedException {
+        Timer timer = new Timer();
+        List<Request<Integer>> loops = new ArrayList<>();
+        LoopRequest<Integer> request = new LoopRequest<>(
+                () -> {
+                    int index = loops.size();
+                    Request<Integer> loop = TestRequests.newDelayedRequest(timer, 100, index, index != 11);
+                    loops.add(loop);
+                    return loop;
+                },
+                Request.TIMEOUT_UNLIMITED,
+                true
+        );
+        request.setTag("workers");
+        request.setWorkerCount(4);
+        Semaphore semaphore = new Semaphore(0);
+        long now = System.currentTimeMillis();
+        request.launch(
+                val -> {
+                    Assert.assertEquals(11, val.intValue());
+                    semaphore.release();
+                },
+                5000
+        );
+        Assert.assertTrue(semaphore.tryAcquire(5, TimeUnit.SECONDS));
+        long cost = System.currentTimeMillis() - now;
+        String dump = request.dumpCallingStatus();
+        System.out.println(String.format("Loop request with 4 workers done in %sms", cost));
+        System.out.println(dump);
+        Assert.assertTrue(cost < 1000);
+        Assert.assertTrue(dump.contains("(Worker 3)"));
+        for (int i = 12; i < loops.size(); i++) {
+            Assert.assertEquals(Request.RequestStatus.Canceled, loops.get(i).getStatus());
+        }
+        timer.cancel();
+    }
+
+    @Test
+    public void testDelayPolicy() throws InterruptedException {
+        int[] count = new int[1];
+        LoopRequest<Integer> request = new LoopRequest<>(
+                () -> {
+                    int index = count[0]++;
+                    return newImmediateRequest(index, index < 5);
+                },
+                Request.TIMEOUT_UNLIMITED,
+                true
+        );
+        request.setDelayPolicy(LoopRequest.DelayPolicy.fixed(50));
+        Semaphore semaphore = new Semaphore(0);
+        long now = System.currentTimeMillis();
+        request.launch(val -> semaphore.release());
+        Assert.assertTrue(semaphore.tryAcquire(5, TimeUnit.SECONDS));
+        long cost = System.currentTimeMillis() - now;
+        System.out.println(String.format("Loop request with fixed delay done in %sms", cost));
+        Assert.assertEquals(5, request.getResultValue().intValue());
+        Assert.assertTrue(cost >= 250);
+
+        LoopRequest.DelayPolicy exponential = LoopRequest.DelayPolicy.exponential(10, 40, 0);
+        Assert.assertEquals(10, exponential.getDelay(null));
+        Assert.assertEquals(20, exponential.getDelay(null));
+        Assert.assertEquals(40, exponential.getDelay(null));
+        Assert.assertEquals(40, exponential.getDelay(null));
+        exponential.onDone(null);
+        Assert.assertEquals(10, exponential.getDelay(null));
+        LoopRequest.DelayPolicy jittered = LoopRequest.DelayPolicy.exponential(100, 100, 0.5);
+        for (int i = 0; i < 100; i++) {
+            long delay = jittered.getDelay(null);
+            Assert.assertTrue(delay > 50 && delay <= 100);
+        }
+
+        //runs sharing an adaptive policy, the interval grows within a run and shrinks with each result
+        LoopRequest.AdaptiveDelayPolicy adaptive = new LoopRequest.AdaptiveDelayPolicy(10, 80);
+        int[] failures = {5, 0, 1};
+        long[] expectedCosts = {10 + 20 + 40 + 80 + 80, 0, 20};
+        long[] expectedDelays = {40, 20, 20};
+        for (int run = 0; run < failures.length; run++) {
+            int runFailures = failures[run];
+            int[] runCount = new int[1];
+            LoopRequest<Integer> polling = new LoopRequest<>(
+                    () -> {
+                        int index = runCount[0]++;
+                        return newImmediateRequest(index, index < runFailures);
+                    },
+                    Request.TIMEOUT_UNLIMITED,
+                    true
+            );
+            polling.setDelayPolicy(adaptive);
+            Semaphore runSemaphore = new Semaphore(0);
+            long runStart = System.currentTimeMillis();
+            polling.launch(val -> runSemaphore.release());
+            Assert.assertTrue(runSemaphore.tryAcquire(5, TimeUnit.SECONDS));
+            long runCost = System.currentTimeMillis() - runStart;
+            System.out.println(String.format("Run %s with %s failures done in %sms", run, runFailures, runCost));
+            Assert.assertEquals(runFailures, polling.getResultValue().intValue());
+            Assert.assertTrue(runCost >= expectedCosts[run]);
+            Assert.assertEquals(expectedDelays[run], adaptive.getCurrentDelay());
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.macfred.util.utils;
 
 import com.macfred.util.function.Callback;
+import com.macfred.util.ref.Ref;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -12,7 +13,10 @@ import java.util.Random;
 import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -259,4 +263,289 @@ public class ParallelRequestTest {
         System.out.println(String.format("%s tests accomplished", total));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testMaxInFlight() throws InterruptedException {
+        int subActionCount = 2000;
+        int maxInFlight = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        List<Request<?>> requests = new ArrayList<>(subActionCount);
+        for (int j = 0; j < subActionCount; j++) {
+            boolean synchronous = j % 2 == 0;
+            requests.add(
+                    new SimpleRequest<>(
+                            new SimpleRequest.RequestAction<Object>() {
+                                @Override
+                                public void execute(Callback<Object> callback, long timeout) {
+                                    int current = inFlight.incrementAndGet();
+                                    peak.accumulateAndGet(current, Math::max);
+                                    if (synchronous) {
+                                        inFlight.decrementAndGet();
+                                        callback.accept(null);
+                                        return;
+                                    }
+                                    executor.execute(() -> {
+                                        inFlight.decrementAndGet();
+                                        callback.accept(null);
+                                    });
+                                }
+
+                                @Override
+                                public void cancel() {
+
+                                }
+                            }
+                    )
+            );
+        }
+        ParallelRequest<Integer> parallelRequest = new ParallelRequest<>(
+                (subActions, resultValue, resultException) -> {
+                    int done = 0;
+                    for (Request<?> subAction : subActions) {
+                        if (subAction.getStatus() == Request.RequestStatus.Done) {
+                            done++;
+                        }
+                    }
+                    resultValue.value = done;
+                    return Request.RequestStatus.Done;
+                }
+        );
+        parallelRequest.setupSubActions(requests);
+        parallelRequest.setMaxInFlight(maxInFlight);
+        Semaphore semaphore = new Semaphore(0);
+        long now = System.currentTimeMillis();
+        parallelRequest.launch(
+                val -> {
+                    Assert.assertEquals(subActionCount, val.intValue());
+                    semaphore.release();
+                },
+                60000L
+        );
+        Assert.assertTrue(semaphore.tryAcquire(60, TimeUnit.SECONDS));
+        Assert.assertTrue(peak.get() <= maxInFlight);
+        System.out.println(String.format("%s sub actions finished in %sms, peak in flight: %s", subActionCount, System.currentTimeMillis() - now, peak.get()));
+        executor.shutdown();
+    }
+
+    @Test
+    public void testCompletionPolicy() throws InterruptedException {
+        Timer timer = new Timer();
+        int[] delays = new int[]{50, 3000, 3000, 100, 3000};
+        Object[][] cases = new Object[][]{
+                {ParallelRequest.CompletionPolicy.firstSuccess(), 1},
+                {ParallelRequest.CompletionPolicy.quorum(2), 2},
+                {ParallelRequest.CompletionPolicy.failFast(), 0},
+        };
+        for (Object[] testCase : cases) {
+            ParallelRequest.CompletionPolicy policy = (ParallelRequest.CompletionPolicy) testCase[0];
+            int expectDone = (int) testCase[1];
+            boolean failFast = expectDone == 0;
+            List<Request<?>> requests = new ArrayList<>();
+            for (int j = 0; j < delays.length; j++) {
+                int delay = delays[j];
+                boolean fail = failFast && j == 0;
+                requests.add(
+                        new SimpleRequest<>(
+                                new SimpleRequest.RequestAction<Integer>() {
+                                    private TimerTask mTask;
+
+                                    @Override
+                                    public void execute(Callback<Integer> callback, long timeout) {
+                                        mTask = new TimerTask() {
+                                            @Override
+                                            public void run() {
+                                                if (fail) {
+                                                    callback.onException(new RuntimeException("Replica failed"));
+                                                } else {
+                                                    callback.accept(delay);
+                                                }
+                                            }
+                                        };
+                                        timer.schedule(mTask, delay);
+                                    }
+
+                                    @Override
+                                    public void cancel() {
+                                        mTask.cancel();
+                                    }
+                                }
+                        )
+                );
+            }
+            ParallelRequest<Integer> parallelRequest = new ParallelRequest<>(
+                    (subActions, resultValue, resultException) -> {
+                        int done = 0;
+                        for (Request<?> subAction : subActions) {
+                            if (subAction.getStatus() == Request.RequestStatus.Done) {
+                                done++;
+                            } else if (subAction.getStatus() == Request.RequestStatus.Exception) {
+                                resultException.value = subAction.getResultException();
+                                return Request.RequestStatus.Exception;
+                            }
+                        }
+                        resultValue.value = done;
+                        return Request.RequestStatus.Done;
+                    }
+            );
+            parallelRequest.setupSubActions(requests);
+            parallelRequest.setCompletionPolicy(policy);
+            Semaphore semaphore = new Semaphore(0);
+            long now = System.currentTimeMillis();
+            parallelRequest.launch(
+                    new Callback<Integer>() {
+                        @Override
+                        public void accept(Integer done) {
+                            Assert.assertEquals(expectDone, done.intValue());
+                            semaphore.release();
+                        }
+
+                        @Override
+                        public void onException(Exception e) {
+                            Assert.assertTrue(failFast);
+                            semaphore.release();
+                        }
+                    },
+                    10000L
+            );
+            Assert.assertTrue(semaphore.tryAcquire(1, TimeUnit.SECONDS));
+            long cost = System.currentTimeMillis() - now;
+            int canceled = 0;
+            for (Request<?> request : requests) {
+                if (request.getStatus() == Request.RequestStatus.Canceled) {
+                    canceled++;
+                }
+            }
+            Assert.assertEquals(delays.length - Math.max(expectDone, 1), canceled);
+            System.out.println(String.format("Parallel request concluded in %sms, %s sub actions canceled", cost, canceled));
+        }
+        timer.cancel();
+    }
+
+    @Test
+    public void testFoldCompositor() throws InterruptedException {
+        int subActionCount = 1000;
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Request<?>> requests = new ArrayList<>(subActionCount);
+        for (int j = 0; j < subActionCount; j++) {
+            int value = j;
+            requests.add(
+                    new SimpleRequest<>(
+                            new SimpleRequest.RequestAction<Integer>() {
+                                @Override
+                                public void execute(Callback<Integer> callback, long timeout) {
+                                    executor.execute(() -> callback.accept(value));
+                                }
+
+                                @Override
+                                public void cancel() {
+
+                                }
+                            }
+                    )
+            );
+        }
+        ParallelRequest<Long> parallelRequest = new ParallelRequest<>(
+                new ParallelRequest.FoldCompositor<Long, long[]>() {
+                    @Override
+                    public long[] initial() {
+                        return new long[1];
+                    }
+
+                    @Override
+                    public long[] fold(long[] accumulator, Request.RequestStatus status, Object resultValue, Exception resultException) {
+                        accumulator[0] += (Integer) resultValue;
+                        return accumulator;
+                    }
+
+                    @Override
+                    public Request.RequestStatus finish(long[] accumulator, Ref<Long> resultValue, Ref<Exception> resultException) {
+                        resultValue.value = accumulator[0];
+                        return Request.RequestStatus.Done;
+                    }
+                }
+        );
+        parallelRequest.setupSubActions(requests);
+        Semaphore semaphore = new Semaphore(0);
+        parallelRequest.launch(
+                val -> {
+                    Assert.assertEquals((long) subActionCount * (subActionCount - 1) / 2, val.longValue());
+                    semaphore.release();
+                },
+                60000L
+        );
+        Assert.assertTrue(semaphore.tryAcquire(60, TimeUnit.SECONDS));
+        for (Request<?> request : requests) {
+            Assert.assertEquals(Request.RequestStatus.Done, request.getStatus());
+            Assert.assertNull(request.getResultValue());
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    public void testDeadlinePropagation() throws InterruptedException {
+        AtomicInteger delayedTaskCount = new AtomicInteger();
+        Request.TaskScheduler defaultTaskScheduler = Request.getDefaultTaskScheduler();
+        Request.TaskScheduler countingTaskScheduler = (action, time) -> {
+            if (time > System.currentTimeMillis() + 50) {
+                delayedTaskCount.incrementAndGet();
+            }
+            return defaultTaskScheduler.scheduleTask(action, time);
+        };
+        int fanOut = 100;
+        List<Request<?>> leaves = new ArrayList<>();
+        List<Request<?>> subActions = new ArrayList<>();
+        for (int i = 0; i < fanOut; i++) {
+            SimpleRequest<Integer> leaf = new SimpleRequest<>(
+                    new SimpleRequest.RequestAction<Integer>() {
+                        @Override
+                        public void execute(Callback<Integer> callback, long timeout) {
+
+                        }
+
+                        @Override
+                        public void cancel() {
+
+                        }
+                    }
+            );
+            leaves.add(leaf);
+            SerialRequest<Integer> serialRequest = new SerialRequest<>(actions -> actions.size());
+            serialRequest.setupSubActions(leaf);
+            subActions.add(serialRequest);
+        }
+        ParallelRequest<Integer> request = new ParallelRequest<>(
+                (actions, resultValue, resultException) -> {
+                    resultValue.value = actions.size();
+                    return Request.RequestStatus.Done;
+                }
+        );
+        request.setTaskScheduler(countingTaskScheduler);
+        request.setupSubActions(subActions);
+        Semaphore semaphore = new Semaphore(0);
+        long now = System.currentTimeMillis();
+        request.launch(
+                new Callback<Integer>() {
+                    @Override
+                    public void accept(Integer integer) {
+
+                    }
+
+                    @Override
+                    public void onTimeout() {
+                        semaphore.release();
+                    }
+                },
+                200
+        );
+        Assert.assertTrue(semaphore.tryAcquire(5, TimeUnit.SECONDS));
+        long cost = System.currentTimeMillis() - now;
+        System.out.println(String.format("Tree of %s nodes reached deadline in %sms with %s timeout checks scheduled", fanOut * 2 + 1, cost, delayedTaskCount.get()));
+        Assert.assertEquals(1, delayedTaskCount.get());
+        Assert.assertEquals(Request.RequestStatus.Timeout, request.getStatus());
+        for (Request<?> leaf : leaves) {
+            Assert.assertTrue(leaf.getTimeout() > 0 && leaf.getTimeout() <= 200);
+            Assert.assertEquals(Request.RequestStatus.Canceled, leaf.getStatus());
+        }
+    }
+}
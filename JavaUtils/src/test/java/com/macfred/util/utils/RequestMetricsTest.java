@@ -0,0 +1,206 @@
+package com.macfred.util.utils;
+
+import com.macfred.util.function.Callback;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+public class RequestMetricsTest {
+
+    @Test
+    public void testRecord() throws InterruptedException {
+        RequestMetrics metrics = new RequestMetrics();
+        RequestMetrics previous = Request.getRequestMetrics();
+        Request.setRequestMetrics(metrics);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            int total = 10000;
+            Semaphore semaphore = new Semaphore(0);
+            long now = System.currentTimeMillis();
+            for (int i = 0; i < total; i++) {
+                boolean fail = i % 4 == 0;
+                SimpleRequest<Integer> request = new SimpleRequest<>(
+                        new SimpleRequest.RequestAction<Integer>() {
+                            @Override
+                            public void execute(Callback<Integer> callback, long timeout) {
+                                executor.execute(() -> {
+                                    if (fail) {
+                                        callback.onException(new RuntimeException());
+                                    } else {
+                                        callback.accept(0);
+                                    }
+                                });
+                            }
+
+                            @Override
+                            public void cancel() {
+
+                            }
+                        }
+                );
+                request.setTag("metrics");
+                request.launch(
+                        new Callback<Integer>() {
+                            @Override
+                            public void accept(Integer integer) {
+                                semaphore.release();
+                            }
+
+                            @Override
+                            public void onException(Exception e) {
+                                semaphore.release();
+                            }
+                        }
+                );
+            }
+            Assert.assertTrue(semaphore.tryAcquire(total, 30, TimeUnit.SECONDS));
+            System.out.println(String.format("%s requests recorded in %sms", total, System.currentTimeMillis() - now));
+            RequestMetrics.Snapshot snapshot = metrics.getSnapshot("metrics");
+            System.out.println(snapshot);
+            Assert.assertEquals(total, snapshot.getCount());
+            Assert.assertEquals(0, snapshot.getInFlight());
+            Assert.assertEquals(total / 4, snapshot.getCount(Request.RequestStatus.Exception));
+            Assert.assertEquals(total - total / 4, snapshot.getCount(Request.RequestStatus.Done));
+            Assert.assertTrue(snapshot.getLatencyPercentile(50) <= snapshot.getLatencyPercentile(99));
+        } finally {
+            Request.setRequestMetrics(previous);
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testTimeoutAndCancel() throws InterruptedException {
+        RequestMetrics metrics = new RequestMetrics(request -> "fixed");
+        RequestMetrics previous = Request.getRequestMetrics();
+        Request.setRequestMetrics(metrics);
+        try {
+            Semaphore semaphore = new Semaphore(0);
+            SimpleRequest<Integer> timeoutRequest = new SimpleRequest<>(
+                    new SimpleRequest.RequestAction<Integer>() {
+                        @Override
+                        public void execute(Callback<Integer> callback, long timeout) {
+
+                        }
+
+                        @Override
+                        public void cancel() {
+
+                        }
+                    }
+            );
+            timeoutRequest.launch(
+                    new Callback<Integer>() {
+                        @Override
+                        public void accept(Integer integer) {
+
+                        }
+
+                        @Override
+                        public void onTimeout() {
+                            semaphore.release();
+                        }
+                    },
+                    50
+            );
+            SimpleRequest<Integer> canceledRequest = new SimpleRequest<>(
+                    new SimpleRequest.RequestAction<Integer>() {
+                        @Override
+                        public void execute(Callback<Integer> callback, long timeout) {
+
+                        }
+
+                        @Override
+                        public void cancel() {
+
+                        }
+                    }
+            );
+            canceledRequest.launch(integer -> {
+            });
+            Assert.assertEquals(2, metrics.getSnapshot("fixed").getInFlight());
+            canceledRequest.cancel();
+            Assert.assertTrue(semaphore.tryAcquire(5, TimeUnit.SECONDS));
+            RequestMetrics.Snapshot snapshot = metrics.getSnapshot("fixed");
+            Assert.assertEquals(0, snapshot.getInFlight());
+            Assert.assertEquals(1, snapshot.getCount(Request.RequestStatus.Timeout));
+            Assert.assertEquals(1, snapshot.getCount(Request.RequestStatus.Canceled));
+            Assert.assertTrue(snapshot.getLatencyPercentile(100) >= TimeUnit.MILLISECONDS.toMicros(50));
+        } finally {
+            Request.setRequestMetrics(previous);
+        }
+    }
+
+    @Test
+    public void testBoundedKeys() {
+        RequestMetrics metrics = new RequestMetrics();
+        RequestMetrics previous = Request.getRequestMetrics();
+        Request.setRequestMetrics(metrics);
+        try {
+            int loops = 1000;
+            int[] remains = {loops};
+            LoopRequest<Integer> loopRequest = new LoopRequest<>(
+                    () -> new SimpleRequest<>(
+                            new SimpleRequest.RequestAction<Integer>() {
+                                @Override
+                                public void execute(Callback<Integer> callback, long timeout) {
+                                    if (--remains[0] > 0) {
+                                        callback.onException(new RuntimeException());
+                                    } else {
+                                        callback.accept(0);
+                                    }
+                                }
+
+                                @Override
+                                public void cancel() {
+
+                                }
+                            }
+                    ),
+                    Request.TIMEOUT_UNLIMITED,
+                    true
+            );
+            loopRequest.setTag("polling");
+            loopRequest.launch(integer -> {
+            });
+            Assert.assertEquals(Request.RequestStatus.Done, loopRequest.getStatus());
+            //generated loop tags fold into the class name
+            Assert.assertEquals(2, metrics.getSnapshots().size());
+            Assert.assertEquals(1, metrics.getSnapshot("polling").getCount());
+            Assert.assertEquals(loops, metrics.getSnapshot(SimpleRequest.class.getSimpleName()).getCount());
+        } finally {
+            Request.setRequestMetrics(previous);
+        }
+
+        RequestMetrics limited = new RequestMetrics(request -> request.getTag(), 4);
+        Request.setRequestMetrics(limited);
+        try {
+            for (int i = 0; i < 10; i++) {
+                SimpleRequest<Integer> request = new SimpleRequest<>(
+                        new SimpleRequest.RequestAction<Integer>() {
+                            @Override
+                            public void execute(Callback<Integer> callback, long timeout) {
+                                callback.accept(0);
+                            }
+
+                            @Override
+                            public void cancel() {
+
+                            }
+                        }
+                );
+                request.setTag(String.format("request-%s", i));
+                request.launch(integer -> {
+                });
+            }
+            Assert.assertEquals(5, limited.getSnapshots().size());
+            Assert.assertEquals(6, limited.getSnapshot(RequestMetrics.OVERFLOW_KEY).getCount());
+        } finally {
+            Request.setRequestMetrics(previous);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.macfred.util.utils;
+
+import com.macfred.util.function.Callback;
+import com.macfred.util.ref.Ref;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RequestPoolTest {
+
+    private static <V> SimpleRequest.RequestAction<V> immediateAction(V value) {
+        return new SimpleRequest.RequestAction<V>() {
+            @Override
+            public void execute(Callback<V> callback, long timeout) {
+                callback.accept(value);
+            }
+
+            @Override
+            public void cancel() {
+
+            }
+        };
+    }
+
+    private static <V> SimpleRequest.RequestAction<V> capturingAction(Ref<Callback<V>> callbackRef) {
+        return new SimpleRequest.RequestAction<V>() {
+            @Override
+            public void execute(Callback<V> callback, long timeout) {
+                callbackRef.value = callback;
+            }
+
+            @Override
+            public void cancel() {
+
+            }
+        };
+    }
+
+    @Test
+    public void testRecycle() {
+        RequestPool<SimpleRequest<Integer>> pool = new RequestPool<>(() -> new SimpleRequest<>(null), 16);
+        int rounds = 100000;
+        AtomicInteger done = new AtomicInteger();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < rounds; i++) {
+            int value = i;
+            SimpleRequest<Integer> request = pool.acquire();
+            request.setRequestAction(immediateAction(value));
+            request.launch(val -> {
+                Assert.assertEquals(value, val.intValue());
+                done.incrementAndGet();
+            });
+            pool.release(request);
+        }
+        System.out.println(String.format("%s pooled simple requests done in %sms", rounds, System.currentTimeMillis() - now));
+        Assert.assertEquals(rounds, done.get());
+        Assert.assertEquals(1, pool.getCreatedCount());
+        Assert.assertEquals(rounds - 1, pool.getRecycledCount());
+        Assert.assertEquals(1, pool.getIdleCount());
+    }
+
+    @Test
+    public void testLateCallback() throws InterruptedException {
+        Ref<Callback<Integer>> staleCallbackRef = new Ref<>();
+        SimpleRequest<Integer> request = new SimpleRequest<>(capturingAction(staleCallbackRef));
+        request.setTag("late");
+        Semaphore semaphore = new Semaphore(0);
+        request.launch(
+                new Callback<Integer>() {
+                    @Override
+                    public void accept(Integer integer) {
+                        Assert.fail();
+                    }
+
+                    @Override
+                    public void onTimeout() {
+                        semaphore.release();
+                    }
+                },
+                50
+        );
+        Assert.assertTrue(semaphore.tryAcquire(5, TimeUnit.SECONDS));
+        Assert.assertEquals(Request.RequestStatus.Timeout, request.getStatus());
+        int generation = request.getGeneration();
+
+        request.reset();
+        Assert.assertEquals(Request.RequestStatus.Idle, request.getStatus());
+        Assert.assertEquals(generation + 1, request.getGeneration());
+        Assert.assertEquals("late", request.getTag());
+        Ref<Callback<Integer>> callbackRef = new Ref<>();
+        request.setRequestAction(capturingAction(callbackRef));
+        Ref<Integer> result = new Ref<>();
+        request.launch(val -> result.value = val, 5000);
+        try {
+            request.reset();
+            Assert.fail();
+        } catch (RuntimeException e) {
+            //expected, still running
+        }
+        //callback of the previous launch must not conclude the recycled request
+        staleCallbackRef.value.accept(1);
+        Assert.assertEquals(Request.RequestStatus.Pending, request.getStatus());
+        Assert.assertNull(result.value);
+        callbackRef.value.accept(2);
+        Assert.assertEquals(Request.RequestStatus.Done, request.getStatus());
+        Assert.assertEquals(2, result.value.intValue());
+        Assert.assertEquals(2, request.getResultValue().intValue());
+
+        DagRequest<Integer> unsupported = new DagRequest<>(results -> 0);
+        try {
+            unsupported.reset();
+            Assert.fail();
+        } catch (RuntimeException e) {
+            //expected, recycling not supported
+        }
+    }
+
+    @Test
+    public void testCompositeRecycle() throws InterruptedException {
+        ExecutorTaskScheduler scheduler = new ExecutorTaskScheduler(1, "recycle");
+        SerialRequest<Integer> serialRequest = new SerialRequest<>(subActions -> {
+            int sum = 0;
+            for (Request subAction : subActions) {
+                sum += (Integer) subAction.getResultValue();
+            }
+            return sum;
+        });
+        serialRequest.setTaskScheduler(scheduler);
+        ParallelRequest<Integer> parallelRequest = new ParallelRequest<>((subActions, resultValue, resultException) -> {
+            int sum = 0;
+            for (Request<?> subAction : subActions) {
+                sum += (Integer) subAction.getResultValue();
+            }
+            resultValue.value = sum;
+            return Request.RequestStatus.Done;
+        });
+        Semaphore semaphore = new Semaphore(0);
+        for (int round = 0; round < 10; round++) {
+            int expected = round * 2 + 3;
+            serialRequest.setupSubActions(new SimpleRequest<>(immediateAction(round + 1)), new SimpleRequest<>(immediateAction(round + 2)));
+            serialRequest.launch(val -> {
+                Assert.assertEquals(expected, val.intValue());
+                semaphore.release();
+            }, 5000);
+            Assert.assertTrue(semaphore.tryAcquire(5, TimeUnit.SECONDS));
+            parallelRequest.setupSubActions(new SimpleRequest<>(immediateAction(round + 1)), new SimpleRequest<>(immediateAction(round + 2)));
+            parallelRequest.launch(val -> {
+                Assert.assertEquals(expected, val.intValue());
+                semaphore.release();
+            }, 5000);
+            Assert.assertTrue(semaphore.tryAcquire(5, TimeUnit.SECONDS));
+            serialRequest.reset();
+            parallelRequest.reset();
+        }
+        Assert.assertEquals(10, serialRequest.getGeneration());
+        Assert.assertEquals(10, parallelRequest.getGeneration());
+        Assert.assertTrue(serialRequest.getChildRequests().isEmpty());
+        scheduler.shutdown();
+    }
+}
@@ -0,0 +1,63 @@
+package com.macfred.util.utils;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Timer;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+public class RequestTraceExporterTest {
+
+    @Test
+    public void testExport() throws InterruptedException {
+        Timer timer = new Timer();
+        ParallelRequest<Integer> parallelRequest = new ParallelRequest<>(
+                (subActions, resultValue, resultException) -> {
+                    resultValue.value = subActions.size();
+                    return Request.RequestStatus.Done;
+                }
+        );
+        parallelRequest.setTag("parallel");
+        parallelRequest.setupSubActions(TestRequests.newTaggedRequest(timer, 100, "slow"), TestRequests.newTaggedRequest(timer, 30, "fast"));
+        SerialRequest<Integer> serialRequest = new SerialRequest<>(subActions -> subActions.size());
+        serialRequest.setTag("serial");
+        serialRequest.setupSubActions(TestRequests.newTaggedRequest(timer, 50, "first"), parallelRequest);
+        Semaphore semaphore = new Semaphore(0);
+        serialRequest.launch(val -> semaphore.release(), 5000);
+        Assert.assertTrue(semaphore.tryAcquire(5, TimeUnit.SECONDS));
+
+        String chromeTrace = RequestTraceExporter.toChromeTrace(serialRequest);
+        System.out.println(chromeTrace);
+        JsonArray events = new JsonParser().parse(chromeTrace).getAsJsonObject().getAsJsonArray("traceEvents");
+        Assert.assertEquals(5, events.size());
+        JsonObject root = events.get(0).getAsJsonObject();
+        Assert.assertEquals(0, root.get("ts").getAsDouble(), 0);
+        //Timer schedules on the millisecond clock, each of the two sequential delays may elapse up to a millisecond early
+        Assert.assertTrue(root.get("dur").getAsDouble() >= TimeUnit.MILLISECONDS.toMicros(150 - 2));
+        int slowLane = -1;
+        int fastLane = -1;
+        for (int i = 0; i < events.size(); i++) {
+            JsonObject event = events.get(i).getAsJsonObject();
+            String tag = event.getAsJsonObject("args").get("tag").getAsString();
+            if ("slow".equals(tag)) {
+                slowLane = event.get("tid").getAsInt();
+            } else if ("fast".equals(tag)) {
+                fastLane = event.get("tid").getAsInt();
+            }
+        }
+        Assert.assertNotEquals(slowLane, fastLane);
+
+        String spanJson = RequestTraceExporter.toSpanJson(serialRequest);
+        System.out.println(spanJson);
+        JsonObject span = new JsonParser().parse(spanJson).getAsJsonObject();
+        Assert.assertEquals("Done", span.get("status").getAsString());
+        Assert.assertEquals(2, span.getAsJsonArray("children").size());
+        Assert.assertEquals(2, span.getAsJsonArray("children").get(1).getAsJsonObject().getAsJsonArray("children").size());
+        timer.cancel();
+    }
+}
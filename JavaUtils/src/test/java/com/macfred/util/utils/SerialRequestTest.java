@@ -11,6 +11,7 @@ import java.util.Random;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class SerialRequestTest {
@@ -223,4 +224,46 @@ public class SerialRequestTest {
         System.out.println(String.format("%s tests accomplished", total));
     }
 
-}
\ No newline at end of file
+
+    @Test
+    public void testCallingChain() throws InterruptedException {
+        int depth = 1000;
+        List<Request<?>> chain = new ArrayList<>();
+        Request<Object> leaf = new SimpleRequest<>(
+                new SimpleRequest.RequestAction<Object>() {
+                    @Override
+                    public void execute(Callback<Object> callback, long timeout) {
+                        callback.accept(null);
+                    }
+
+                    @Override
+                    public void cancel() {
+
+                    }
+                }
+        );
+        Request<?> child = leaf;
+        for (int i = 0; i < depth; i++) {
+            SerialRequest<Object> serialRequest = new SerialRequest<>(subActions -> null);
+            serialRequest.setTag(String.format("level-%s", depth - i - 1));
+            serialRequest.setupSubActions(child);
+            chain.add(0, serialRequest);
+            child = serialRequest;
+        }
+        //own scheduler, an assertion failing on the default timer thread in another test must not stall this one
+        ExecutorTaskScheduler scheduler = new ExecutorTaskScheduler(1, "calling-chain");
+        chain.get(0).setTaskScheduler(scheduler);
+        Semaphore semaphore = new Semaphore(0);
+        long now = System.nanoTime();
+        ((Request<Object>) chain.get(0)).launch(ret -> semaphore.release());
+        Assert.assertTrue(semaphore.tryAcquire(60, TimeUnit.SECONDS));
+        scheduler.shutdown();
+        List<Request> callingChain = leaf.getCallingChain();
+        Assert.assertEquals(depth, callingChain.size());
+        for (int i = 0; i < depth; i++) {
+            Assert.assertSame(chain.get(i), callingChain.get(i));
+        }
+        Assert.assertEquals(depth + 1, leaf.generateCallChainInfo().split("-----").length);
+        System.out.println(String.format("Serial request nested %s levels finished in %sus", depth, (System.nanoTime() - now) / 1000));
+    }
+}
@@ -5,11 +5,21 @@ import com.macfred.util.function.Callback;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class SimpleRequestTest {
 
@@ -167,5 +177,156 @@ public class SimpleRequestTest {
         System.out.println(String.format("%s tests accomplished", total));
     }
 
+    @Test
+    public void testCallbackExecutor() throws InterruptedException {
+        ExecutorService callbackExecutor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "callback-executor"));
+        int total = 100;
+        Semaphore semaphore = new Semaphore(0);
+        for (int i = 0; i < total; i++) {
+            int value = i;
+            SimpleRequest<Integer> simpleRequest = new SimpleRequest<>(
+                    new SimpleRequest.RequestAction<Integer>() {
+                        @Override
+                        public void execute(Callback<Integer> callback, long timeout) {
+                            callback.accept(value);
+                        }
+
+                        @Override
+                        public void cancel() {
+
+                        }
+                    }
+            );
+            simpleRequest.setCallbackExecutor(callbackExecutor);
+            simpleRequest.launch(
+                    val -> {
+                        Assert.assertEquals("callback-executor", Thread.currentThread().getName());
+                        Assert.assertEquals(Request.RequestStatus.Done, simpleRequest.getStatus());
+                        Assert.assertEquals(value, val.intValue());
+                        semaphore.release();
+                    }
+            );
+        }
+        Assert.assertTrue(semaphore.tryAcquire(total, 10, TimeUnit.SECONDS));
+        callbackExecutor.shutdown();
+    }
 
-}
\ No newline at end of file
+    @Test
+    public void testCancelWhileLaunching() throws InterruptedException {
+        AtomicInteger canceled = new AtomicInteger();
+        AtomicInteger canceledBeforeExecuted = new AtomicInteger();
+        boolean[] executed = new boolean[1];
+        SimpleRequest<Integer>[] holder = new SimpleRequest[1];
+        holder[0] = new SimpleRequest<>(
+                new SimpleRequest.RequestAction<Integer>() {
+                    @Override
+                    public void execute(Callback<Integer> callback, long timeout) {
+                        Thread canceling = new Thread(() -> holder[0].cancel());
+                        canceling.start();
+                        try {
+                            canceling.join();
+                        } catch (InterruptedException e) {
+                            throw new RuntimeException(e);
+                        }
+                        executed[0] = true;
+                    }
+
+                    @Override
+                    public void cancel() {
+                        if (!executed[0]) {
+                            canceledBeforeExecuted.incrementAndGet();
+                        }
+                        canceled.incrementAndGet();
+                    }
+                }
+        );
+        AtomicInteger canceledCallback = new AtomicInteger();
+        holder[0].launch(
+                new Callback<Integer>() {
+                    @Override
+                    public void accept(Integer integer) {
+                        Assert.fail();
+                    }
+
+                    @Override
+                    public void onCanceled() {
+                        canceledCallback.incrementAndGet();
+                    }
+                }
+        );
+        Assert.assertEquals(Request.RequestStatus.Canceled, holder[0].getStatus());
+        Assert.assertEquals(1, canceled.get());
+        Assert.assertEquals(0, canceledBeforeExecuted.get());
+        Assert.assertEquals(1, canceledCallback.get());
+    }
+
+    @Test
+    public void testStaleCallback() {
+        List<Callback<Integer>> callbacks = new ArrayList<>();
+        SimpleRequest<Integer> simpleRequest = new SimpleRequest<>(
+                new SimpleRequest.RequestAction<Integer>() {
+                    @Override
+                    public void execute(Callback<Integer> callback, long timeout) {
+                        callbacks.add(callback);
+                    }
+
+                    @Override
+                    public void cancel() {
+
+                    }
+                }
+        );
+        AtomicInteger accepted = new AtomicInteger();
+        simpleRequest.launch(value -> accepted.incrementAndGet());
+        simpleRequest.cancel();
+        simpleRequest.reset();
+        simpleRequest.launch(value -> accepted.incrementAndGet());
+        callbacks.get(0).accept(1);
+        Assert.assertEquals(Request.RequestStatus.Pending, simpleRequest.getStatus());
+        Assert.assertNull(simpleRequest.getResultValue());
+        callbacks.get(1).accept(2);
+        callbacks.get(1).accept(3);
+        Assert.assertEquals(Request.RequestStatus.Done, simpleRequest.getStatus());
+        Assert.assertEquals(2, simpleRequest.getResultValue().intValue());
+        Assert.assertEquals(1, accepted.get());
+    }
+
+    @Test
+    public void testLazyMessage() throws IOException, ClassNotFoundException {
+        AtomicInteger rendered = new AtomicInteger();
+        SimpleRequest<Integer> simpleRequest = new SimpleRequest<>(
+                new SimpleRequest.RequestAction<Integer>() {
+                    @Override
+                    public void execute(Callback<Integer> callback, long timeout) {
+
+                    }
+
+                    @Override
+                    public void cancel() {
+
+                    }
+                }
+        );
+        simpleRequest.setTagSupplier(() -> {
+            rendered.incrementAndGet();
+            return "lazy";
+        });
+        RequestException exception = new RequestException(() -> String.format("Request tagged %s failed", simpleRequest.getTag()));
+        Assert.assertEquals(0, rendered.get());
+        Assert.assertEquals("Request tagged lazy failed", exception.getMessage());
+        Assert.assertEquals("Request tagged lazy failed", exception.getMessage());
+        Assert.assertEquals("lazy", simpleRequest.getTag());
+        Assert.assertEquals(1, rendered.get());
+        simpleRequest.setTag(null);
+        Assert.assertNull(simpleRequest.getTag());
+
+        RequestException unread = new RequestException(() -> "Rendered before serialization");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(unread);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            Assert.assertEquals("Rendered before serialization", ((RequestException) in.readObject()).getMessage());
+        }
+    }
+}
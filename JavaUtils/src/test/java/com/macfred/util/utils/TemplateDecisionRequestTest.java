@@ -0,0 +1,167 @@
+package com.macfred.util.utils;
+
+import com.macfred.util.function.Callback;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Timer;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TemplateDecisionRequestTest {
+
+    private static <V> Request<V> newImmediateRequest(V value) {
+        return new SimpleRequest<>(
+                new SimpleRequest.RequestAction<V>() {
+                    @Override
+                    public void execute(Callback<V> callback, long timeout) {
+                        callback.accept(value);
+                    }
+
+                    @Override
+                    public void cancel() {
+
+                    }
+                }
+        );
+    }
+
+    @Test
+    public void testExecutions() {
+        //halve the input until it becomes odd
+        TemplateDecisionRequest.Template<Integer, Integer> template = new TemplateDecisionRequest.Builder<Integer, Integer>("parse")
+                .<Integer, Integer>addStep(
+                        "parse",
+                        TemplateDecisionRequestTest::newImmediateRequest,
+                        (value, transition) -> transition.next("halve", value),
+                        "halve"
+                )
+                .<Integer, Integer>addStep(
+                        "halve",
+                        TemplateDecisionRequestTest::newImmediateRequest,
+                        (value, transition) -> {
+                            if (value % 2 == 0) {
+                                transition.next("halve", value / 2);
+                            } else {
+                                transition.finish(value);
+                            }
+                        },
+                        "halve"
+                )
+                .build("halve");
+        Assert.assertEquals(2, template.getStepCount());
+        int executions = 100000;
+        AtomicInteger done = new AtomicInteger();
+        long now = System.currentTimeMillis();
+        for (int i = 1; i <= executions; i++) {
+            int input = i;
+            template.newRequest(input).launch(
+                    val -> {
+                        Assert.assertEquals(input >> Integer.numberOfTrailingZeros(input), val.intValue());
+                        done.incrementAndGet();
+                    },
+                    Request.TIMEOUT_UNLIMITED
+            );
+        }
+        System.out.println(String.format("%s template decision executions done in %sms", executions, System.currentTimeMillis() - now));
+        Assert.assertEquals(executions, done.get());
+
+        TemplateDecisionRequest<Integer, Integer> request = template.newRequest(1 << 20);
+        request.launch(val -> Assert.assertEquals(1, val.intValue()), 5000);
+        System.out.println(request.dumpCallingStatus());
+        Assert.assertEquals(Request.RequestStatus.Done, request.getStatus());
+    }
+
+    @Test
+    public void testConcurrentExecutions() throws InterruptedException {
+        Timer timer = new Timer();
+        TemplateDecisionRequest.Template<String, String> template = new TemplateDecisionRequest.Builder<String, String>("fetch")
+                .<String, String>addStep(
+                        "fetch",
+                        input -> TestRequests.newDelayedRequest(timer, input.startsWith("slow") ? 1000 : 100, input),
+                        (value, transition) -> transition.next("decorate", value),
+                        "decorate"
+                )
+                .<String, String>addStep(
+                        "decorate",
+                        input -> TestRequests.newDelayedRequest(timer, 50, String.format("<%s>", input)),
+                        (value, transition) -> transition.finish(value)
+                )
+                .build("decorate");
+        int executions = 100;
+        Semaphore semaphore = new Semaphore(0);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < executions; i++) {
+            String input = String.valueOf(i);
+            template.newRequest(input).launch(
+                    val -> {
+                        Assert.assertEquals(String.format("<%s>", input), val);
+                        semaphore.release();
+                    },
+                    5000
+            );
+        }
+        Assert.assertTrue(semaphore.tryAcquire(executions, 5, TimeUnit.SECONDS));
+        long elapsed = System.currentTimeMillis() - now;
+        System.out.println(String.format("%s concurrent template decision executions done in %sms", executions, elapsed));
+        Assert.assertTrue(elapsed < 1000);
+
+        TemplateDecisionRequest<String, String> slow = template.newRequest("slow");
+        slow.launch(
+                new Callback<String>() {
+                    @Override
+                    public void accept(String s) {
+                        Assert.fail();
+                    }
+
+                    @Override
+                    public void onTimeout() {
+                        semaphore.release();
+                    }
+                },
+                200
+        );
+        Assert.assertTrue(semaphore.tryAcquire(5, TimeUnit.SECONDS));
+        System.out.println(slow.dumpCallingStatus());
+        Assert.assertEquals(Request.RequestStatus.Timeout, slow.getStatus());
+        Assert.assertEquals(Request.RequestStatus.Canceled, slow.getChildRequests().get(0).getStatus());
+        timer.cancel();
+    }
+
+    @Test
+    public void testUndeclaredSuccessor() {
+        TemplateDecisionRequest.Builder<Integer, Integer> builder = new TemplateDecisionRequest.Builder<Integer, Integer>("a")
+                .<Integer, Integer>addStep(
+                        "a",
+                        TemplateDecisionRequestTest::newImmediateRequest,
+                        (value, transition) -> transition.next("b", value)
+                );
+        TemplateDecisionRequest.Template<Integer, Integer> template = builder.build("undeclared");
+        TemplateDecisionRequest<Integer, Integer> request = template.newRequest(1);
+        request.launch(
+                new Callback<Integer>() {
+                    @Override
+                    public void accept(Integer integer) {
+                        Assert.fail();
+                    }
+
+                    @Override
+                    public void onException(Exception e) {
+                        System.out.println(e.getMessage());
+                    }
+                },
+                5000
+        );
+        Assert.assertEquals(Request.RequestStatus.Exception, request.getStatus());
+
+        builder.<Integer, Integer>addStep("b", TemplateDecisionRequestTest::newImmediateRequest, (value, transition) -> transition.finish(value), "c");
+        try {
+            builder.build("unknown");
+            Assert.fail();
+        } catch (RuntimeException e) {
+            //expected
+        }
+    }
+}
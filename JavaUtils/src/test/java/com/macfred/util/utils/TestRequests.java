@@ -0,0 +1,63 @@
+package com.macfred.util.utils;
+
+import com.macfred.util.function.Callback;
+
+import java.util.Timer;
+import java.util.TimerTask;
+
+/**
+ * Timer backed requests shared by the request tests
+ */
+class TestRequests {
+
+    private TestRequests() {
+
+    }
+
+    /**
+     * @return request accepting the value once the delay elapsed, canceling it cancels the timer task
+     */
+    static <V> Request<V> newDelayedRequest(Timer timer, long delay, V value) {
+        return newDelayedRequest(timer, delay, value, false);
+    }
+
+    /**
+     * @return request accepting the value or failing once the delay elapsed, canceling it cancels the timer task
+     */
+    static <V> Request<V> newDelayedRequest(Timer timer, long delay, V value, boolean fail) {
+        return new SimpleRequest<>(
+                new SimpleRequest.RequestAction<V>() {
+                    private TimerTask mTask;
+
+                    @Override
+                    public void execute(Callback<V> callback, long timeout) {
+                        mTask = new TimerTask() {
+                            @Override
+                            public void run() {
+                                if (fail) {
+                                    callback.onException(new RuntimeException("Test exception"));
+                                } else {
+                                    callback.accept(value);
+                                }
+                            }
+                        };
+                        timer.schedule(mTask, delay);
+                    }
+
+                    @Override
+                    public void cancel() {
+                        mTask.cancel();
+                    }
+                }
+        );
+    }
+
+    /**
+     * @return request tagged with the tag, accepting its delay once the delay elapsed
+     */
+    static Request<Integer> newTaggedRequest(Timer timer, long delay, String tag) {
+        Request<Integer> request = newDelayedRequest(timer, delay, (int) delay);
+        request.setTag(tag);
+        return request;
+    }
+}
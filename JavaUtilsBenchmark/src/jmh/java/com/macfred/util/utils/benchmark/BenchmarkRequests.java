@@ -0,0 +1,72 @@
+package com.macfred.util.utils.benchmark;
+
+import com.macfred.util.function.Callback;
+import com.macfred.util.utils.ExecutorTaskScheduler;
+import com.macfred.util.utils.HashedWheelTaskScheduler;
+import com.macfred.util.utils.Request;
+import com.macfred.util.utils.SimpleRequest;
+
+class BenchmarkRequests {
+	static final String SCHEDULER_TIMER = "timer";
+	static final String SCHEDULER_WHEEL = "wheel";
+	static final String SCHEDULER_EXECUTOR = "executor";
+
+	private static final SimpleRequest.RequestAction<Integer> IMMEDIATE_ACTION = new SimpleRequest.RequestAction<Integer>() {
+		@Override
+		public void execute(Callback<Integer> callback, long timeout) {
+			callback.accept(1);
+		}
+
+		@Override
+		public void cancel() {
+
+		}
+	};
+
+	private static final SimpleRequest.RequestAction<Integer> FAILING_ACTION = new SimpleRequest.RequestAction<Integer>() {
+		private final RuntimeException mException = new RuntimeException("Benchmark failure");
+
+		@Override
+		public void execute(Callback<Integer> callback, long timeout) {
+			callback.onException(mException);
+		}
+
+		@Override
+		public void cancel() {
+
+		}
+	};
+
+	private BenchmarkRequests() {
+
+	}
+
+	static SimpleRequest<Integer> newImmediateRequest() {
+		return new SimpleRequest<>(IMMEDIATE_ACTION);
+	}
+
+	static SimpleRequest<Integer> newFailingRequest() {
+		return new SimpleRequest<>(FAILING_ACTION);
+	}
+
+	static Request.TaskScheduler newTaskScheduler(String name) {
+		switch (name) {
+			case SCHEDULER_TIMER:
+				return Request.getDefaultTaskScheduler();
+			case SCHEDULER_WHEEL:
+				return new HashedWheelTaskScheduler();
+			case SCHEDULER_EXECUTOR:
+				return new ExecutorTaskScheduler(1, "benchmark-scheduler");
+			default:
+				throw new IllegalArgumentException(String.format("Unknown task scheduler: %s", name));
+		}
+	}
+
+	static void shutdown(Request.TaskScheduler taskScheduler) {
+		if (taskScheduler instanceof HashedWheelTaskScheduler) {
+			((HashedWheelTaskScheduler) taskScheduler).shutdown();
+		} else if (taskScheduler instanceof ExecutorTaskScheduler) {
+			((ExecutorTaskScheduler) taskScheduler).shutdown();
+		}
+	}
+}
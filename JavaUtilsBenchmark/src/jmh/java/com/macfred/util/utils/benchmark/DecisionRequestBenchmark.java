@@ -0,0 +1,80 @@
+package com.macfred.util.utils.benchmark;
+
+import com.macfred.util.function.BiConsumer;
+import com.macfred.util.ref.BiRef;
+import com.macfred.util.utils.DecisionRequest;
+import com.macfred.util.utils.Request;
+import com.macfred.util.utils.TemplateDecisionRequest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Decision chain rebuilt for every launch against the same chain compiled once into a template
+ */
+@State(Scope.Thread)
+public class DecisionRequestBenchmark {
+
+	@Param({"1", "10", "100"})
+	public int mDepth;
+
+	@Param({BenchmarkRequests.SCHEDULER_WHEEL, BenchmarkRequests.SCHEDULER_EXECUTOR})
+	public String mScheduler;
+
+	private Request.TaskScheduler mTaskScheduler;
+	private TemplateDecisionRequest.Template<Integer, Integer> mTemplate;
+
+	@Setup
+	public void setup() {
+		mTaskScheduler = BenchmarkRequests.newTaskScheduler(mScheduler);
+		TemplateDecisionRequest.Builder<Integer, Integer> builder = new TemplateDecisionRequest.Builder<>("0");
+		for (int i = 0; i < mDepth; i++) {
+			String next = String.valueOf(i + 1);
+			if (i + 1 < mDepth) {
+				builder.<Integer, Integer>addStep(String.valueOf(i), input -> BenchmarkRequests.newImmediateRequest(), (value, transition) -> transition.next(next, value), next);
+			} else {
+				builder.<Integer, Integer>addStep(String.valueOf(i), input -> BenchmarkRequests.newImmediateRequest(), (value, transition) -> transition.finish(value));
+			}
+		}
+		mTemplate = builder.build("benchmark");
+	}
+
+	@TearDown
+	public void tearDown() {
+		BenchmarkRequests.shutdown(mTaskScheduler);
+	}
+
+	@Benchmark
+	public Integer rebuilt() throws InterruptedException {
+		DecisionRequest<Integer> request = new DecisionRequest<>(BenchmarkRequests.newImmediateRequest(), newDecision(mDepth));
+		request.setTaskScheduler(mTaskScheduler);
+		return launchAndAwait(request);
+	}
+
+	@Benchmark
+	public Integer template() throws InterruptedException {
+		TemplateDecisionRequest<Integer, Integer> request = mTemplate.newRequest(0);
+		request.setTaskScheduler(mTaskScheduler);
+		return launchAndAwait(request);
+	}
+
+	private static BiConsumer<Request<Integer>, DecisionRequest.DecisionMaker<Integer>> newDecision(int remains) {
+		if (remains <= 1) {
+			return DecisionRequest.handleFinalDecision(Request::getResultValue);
+		}
+		return DecisionRequest.handleDecision(request -> BiRef.create(BenchmarkRequests.newImmediateRequest(), newDecision(remains - 1)));
+	}
+
+	private static Integer launchAndAwait(Request<Integer> request) throws InterruptedException {
+		CountDownLatch latch = new CountDownLatch(1);
+		request.launch(value -> latch.countDown());
+		latch.await();
+		return request.getResultValue();
+	}
+}
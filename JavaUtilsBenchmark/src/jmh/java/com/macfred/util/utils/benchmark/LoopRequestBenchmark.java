@@ -0,0 +1,34 @@
+package com.macfred.util.utils.benchmark;
+
+import com.macfred.util.function.Callback;
+import com.macfred.util.utils.LoopRequest;
+import com.macfred.util.utils.Request;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Cost per loop iteration, every loop but the last one fails and is retried
+ */
+@State(Scope.Thread)
+public class LoopRequestBenchmark {
+	private final Callback<Integer> mCallback = value -> {
+	};
+
+	@Param({"1", "10", "100"})
+	public int mIterations;
+
+	@Benchmark
+	public Integer iterate() {
+		int[] remains = {mIterations};
+		LoopRequest<Integer> request = new LoopRequest<>(
+				() -> --remains[0] > 0 ? BenchmarkRequests.newFailingRequest() : BenchmarkRequests.newImmediateRequest(),
+				Request.TIMEOUT_UNLIMITED,
+				true
+		);
+		request.launch(mCallback);
+		return request.getResultValue();
+	}
+}
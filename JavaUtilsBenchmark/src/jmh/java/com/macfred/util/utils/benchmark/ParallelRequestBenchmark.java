@@ -0,0 +1,46 @@
+package com.macfred.util.utils.benchmark;
+
+import com.macfred.util.function.Callback;
+import com.macfred.util.utils.ParallelRequest;
+import com.macfred.util.utils.Request;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fan-out of synchronously concluding sub actions, building the request tree is part of each operation since requests are single use
+ */
+@State(Scope.Thread)
+public class ParallelRequestBenchmark {
+	private final Callback<Integer> mCallback = value -> {
+	};
+
+	@Param({"10", "1000", "100000"})
+	public int mFanOut;
+
+	@Param({"0", "64"})
+	public int mMaxInFlight;
+
+	@Benchmark
+	public Integer fanOut() {
+		List<Request<?>> subActions = new ArrayList<>(mFanOut);
+		for (int i = 0; i < mFanOut; i++) {
+			subActions.add(BenchmarkRequests.newImmediateRequest());
+		}
+		ParallelRequest<Integer> request = new ParallelRequest<>(
+				(concludedSubActions, resultValue, resultException) -> {
+					resultValue.value = concludedSubActions.size();
+					return Request.RequestStatus.Done;
+				}
+		);
+		request.setupSubActions(subActions);
+		request.setMaxInFlight(mMaxInFlight);
+		request.launch(mCallback);
+		return request.getResultValue();
+	}
+}
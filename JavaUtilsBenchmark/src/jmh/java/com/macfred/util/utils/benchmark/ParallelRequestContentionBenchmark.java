@@ -0,0 +1,108 @@
+package com.macfred.util.utils.benchmark;
+
+import com.macfred.util.function.Callback;
+import com.macfred.util.utils.ParallelRequest;
+import com.macfred.util.utils.Request;
+import com.macfred.util.utils.SimpleRequest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sub actions of one launched fan-out reported from several threads at once, each thread reports an interleaved share of them.
+ * The single thread run is the reference: a parent serializing its completions on one lock keeps the concurrent runs from
+ * finishing any faster. Running the same benchmark against a tree before lock-free status transitions gives the baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 20)
+@Measurement(iterations = 50)
+public class ParallelRequestContentionBenchmark {
+	private final Callback<Integer> mCallback = value -> {
+	};
+
+	@Param({"1000", "100000"})
+	public int mFanOut;
+
+	private List<Callback<Integer>> mSubActionCallbacks;
+	private ParallelRequest<Integer> mRequest;
+
+	@Setup(Level.Iteration)
+	public void launch() {
+		List<Callback<Integer>> subActionCallbacks = new ArrayList<>(mFanOut);
+		SimpleRequest.RequestAction<Integer> pendingAction = new SimpleRequest.RequestAction<Integer>() {
+			@Override
+			public void execute(Callback<Integer> callback, long timeout) {
+				subActionCallbacks.add(callback);
+			}
+
+			@Override
+			public void cancel() {
+
+			}
+		};
+		List<Request<?>> subActions = new ArrayList<>(mFanOut);
+		for (int i = 0; i < mFanOut; i++) {
+			subActions.add(new SimpleRequest<>(pendingAction));
+		}
+		ParallelRequest<Integer> request = new ParallelRequest<>(
+				(concludedSubActions, resultValue, resultException) -> {
+					resultValue.value = concludedSubActions.size();
+					return Request.RequestStatus.Done;
+				}
+		);
+		request.setupSubActions(subActions);
+		request.launch(mCallback);
+		mSubActionCallbacks = subActionCallbacks;
+		mRequest = request;
+	}
+
+	@TearDown(Level.Iteration)
+	public void verify() {
+		if (mRequest.getStatus() != Request.RequestStatus.Done) {
+			throw new IllegalStateException(String.format("Fan-out concluded in status %s", mRequest.getStatus()));
+		}
+	}
+
+	@Benchmark
+	@Threads(1)
+	public void reportFromOneThread(ThreadParams threadParams) {
+		report(threadParams);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public void reportFromFourThreads(ThreadParams threadParams) {
+		report(threadParams);
+	}
+
+	@Benchmark
+	@Threads(8)
+	public void reportFromEightThreads(ThreadParams threadParams) {
+		report(threadParams);
+	}
+
+	private void report(ThreadParams threadParams) {
+		List<Callback<Integer>> subActionCallbacks = mSubActionCallbacks;
+		for (int i = threadParams.getThreadIndex(); i < mFanOut; i += threadParams.getThreadCount()) {
+			subActionCallbacks.get(i).accept(i);
+		}
+	}
+}
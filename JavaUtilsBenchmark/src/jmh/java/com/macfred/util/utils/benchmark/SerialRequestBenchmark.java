@@ -0,0 +1,76 @@
+package com.macfred.util.utils.benchmark;
+
+import com.macfred.util.utils.Request;
+import com.macfred.util.utils.SerialRequest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Serial requests hop through the task scheduler between sub actions, so each operation waits for the callback
+ */
+@State(Scope.Thread)
+public class SerialRequestBenchmark {
+
+	@Param({"1", "10", "100"})
+	public int mDepth;
+
+	@Param({BenchmarkRequests.SCHEDULER_TIMER, BenchmarkRequests.SCHEDULER_WHEEL, BenchmarkRequests.SCHEDULER_EXECUTOR})
+	public String mScheduler;
+
+	private Request.TaskScheduler mTaskScheduler;
+
+	@Setup
+	public void setup() {
+		mTaskScheduler = BenchmarkRequests.newTaskScheduler(mScheduler);
+	}
+
+	@TearDown
+	public void tearDown() {
+		BenchmarkRequests.shutdown(mTaskScheduler);
+	}
+
+	@Benchmark
+	public Integer sequence() throws InterruptedException {
+		List<Request<?>> subActions = new ArrayList<>(mDepth);
+		for (int i = 0; i < mDepth; i++) {
+			subActions.add(BenchmarkRequests.newImmediateRequest());
+		}
+		SerialRequest<Integer> request = newSerialRequest();
+		request.setupSubActions(subActions);
+		return launchAndAwait(request);
+	}
+
+	@Benchmark
+	public Integer nested() throws InterruptedException {
+		Request<?> child = BenchmarkRequests.newImmediateRequest();
+		SerialRequest<Integer> request = null;
+		for (int i = 0; i < mDepth; i++) {
+			request = newSerialRequest();
+			request.setupSubActions(child);
+			child = request;
+		}
+		return launchAndAwait(request);
+	}
+
+	private SerialRequest<Integer> newSerialRequest() {
+		SerialRequest<Integer> request = new SerialRequest<>(subActions -> subActions.size());
+		request.setTaskScheduler(mTaskScheduler);
+		return request;
+	}
+
+	private static Integer launchAndAwait(SerialRequest<Integer> request) throws InterruptedException {
+		CountDownLatch latch = new CountDownLatch(1);
+		request.launch(value -> latch.countDown());
+		latch.await();
+		return request.getResultValue();
+	}
+}
@@ -0,0 +1,42 @@
+package com.macfred.util.utils.benchmark;
+
+import com.macfred.util.function.Callback;
+import com.macfred.util.utils.RequestPool;
+import com.macfred.util.utils.SimpleRequest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Launch to callback overhead of a simple request whose action concludes synchronously
+ */
+@State(Scope.Thread)
+public class SimpleRequestBenchmark {
+	private final Callback<Integer> mCallback = value -> {
+	};
+	private final RequestPool<SimpleRequest<Integer>> mPool = new RequestPool<>(BenchmarkRequests::newImmediateRequest, 16);
+
+	@Benchmark
+	public Integer launchToCallback() {
+		SimpleRequest<Integer> request = BenchmarkRequests.newImmediateRequest();
+		request.launch(mCallback);
+		return request.getResultValue();
+	}
+
+	@Benchmark
+	public Integer pooledLaunchToCallback() {
+		SimpleRequest<Integer> request = mPool.acquire();
+		request.launch(mCallback);
+		Integer result = request.getResultValue();
+		mPool.release(request);
+		return result;
+	}
+
+	@Benchmark
+	public Exception launchToException() {
+		SimpleRequest<Integer> request = BenchmarkRequests.newFailingRequest();
+		request.launch(mCallback);
+		return request.getResultException();
+	}
+}
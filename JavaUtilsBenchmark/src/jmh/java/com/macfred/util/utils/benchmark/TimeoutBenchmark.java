@@ -0,0 +1,53 @@
+package com.macfred.util.utils.benchmark;
+
+import com.macfred.util.function.Callback;
+import com.macfred.util.utils.Request;
+import com.macfred.util.utils.SimpleRequest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Cost of scheduling a timeout check and canceling it before it fires, which every request launched with a timeout pays
+ */
+@State(Scope.Thread)
+public class TimeoutBenchmark {
+	private static final long TIMEOUT = 60000;
+	private static final Runnable NOOP = () -> {
+	};
+	private final Callback<Integer> mCallback = value -> {
+	};
+
+	@Param({BenchmarkRequests.SCHEDULER_TIMER, BenchmarkRequests.SCHEDULER_WHEEL, BenchmarkRequests.SCHEDULER_EXECUTOR})
+	public String mScheduler;
+
+	private Request.TaskScheduler mTaskScheduler;
+
+	@Setup
+	public void setup() {
+		mTaskScheduler = BenchmarkRequests.newTaskScheduler(mScheduler);
+	}
+
+	@TearDown
+	public void tearDown() {
+		BenchmarkRequests.shutdown(mTaskScheduler);
+	}
+
+	@Benchmark
+	public boolean scheduleAndCancel() {
+		Request.Task task = mTaskScheduler.scheduleTask(NOOP, System.currentTimeMillis() + TIMEOUT);
+		return task.cancel();
+	}
+
+	@Benchmark
+	public Integer launchWithTimeout() {
+		SimpleRequest<Integer> request = BenchmarkRequests.newImmediateRequest();
+		request.setTaskScheduler(mTaskScheduler);
+		request.launch(mCallback, TIMEOUT);
+		return request.getResultValue();
+	}
+}
@@ -0,0 +1,190 @@
+package com.macfred.util.utils;
+
+import com.macfred.util.function.Callback;
+import com.macfred.util.function.Supplier;
+
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cold {@link Flow.Publisher} of loop iterations, every subscription launches a loop request obtained from the supplier and emits
+ * each concluded loop in delivery order. Loops are only launched against outstanding demand, the subscription completes when the
+ * loop request is done and fails when it concludes otherwise.
+ */
+public class LoopRequestPublisher<T> implements Flow.Publisher<Request<T>> {
+	private final Supplier<LoopRequest<T>> mLoopRequestSupplier;
+	private final long mTimeout;
+
+	public LoopRequestPublisher(Supplier<LoopRequest<T>> loopRequestSupplier) {
+		this(loopRequestSupplier, Request.TIMEOUT_UNLIMITED);
+	}
+
+	/**
+	 * @param timeout timeout of each launched loop request
+	 */
+	public LoopRequestPublisher(Supplier<LoopRequest<T>> loopRequestSupplier, long timeout) {
+		mLoopRequestSupplier = Objects.requireNonNull(loopRequestSupplier);
+		mTimeout = timeout;
+	}
+
+	@Override
+	public void subscribe(Flow.Subscriber<? super Request<T>> subscriber) {
+		Objects.requireNonNull(subscriber);
+		LoopRequest<T> loopRequest;
+		try {
+			loopRequest = Objects.requireNonNull(mLoopRequestSupplier.get(), "Loop request supplier generated null");
+		} catch (Exception e) {
+			subscriber.onSubscribe(new Flow.Subscription() {
+				@Override
+				public void request(long n) {
+
+				}
+
+				@Override
+				public void cancel() {
+
+				}
+			});
+			subscriber.onError(e);
+			return;
+		}
+		LoopSubscription<T> subscription = new LoopSubscription<>(loopRequest, subscriber);
+		loopRequest.setIterationListener(subscription);
+		subscriber.onSubscribe(subscription);
+		subscription.launch(mTimeout);
+	}
+
+	private static class LoopSubscription<T> implements Flow.Subscription, LoopRequest.IterationListener<T>, Callback<T> {
+		private final LoopRequest<T> mLoopRequest;
+		private final Flow.Subscriber<? super Request<T>> mSubscriber;
+		private final AtomicLong mDemand = new AtomicLong();
+		private final AtomicInteger mResumeCount = new AtomicInteger();
+		private boolean mTerminated;
+		private volatile boolean mCanceled;
+
+		private LoopSubscription(LoopRequest<T> loopRequest, Flow.Subscriber<? super Request<T>> subscriber) {
+			mLoopRequest = loopRequest;
+			mSubscriber = subscriber;
+		}
+
+		private void launch(long timeout) {
+			if (mCanceled) {
+				return;
+			}
+			try {
+				mLoopRequest.launch(this, timeout);
+			} catch (Exception e) {
+				onException(e);
+			}
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				terminate(new IllegalArgumentException(String.format("Illegal demand: %s", n)));
+				cancel();
+				return;
+			}
+			long demand;
+			do {
+				demand = mDemand.get();
+				if (demand == Long.MAX_VALUE) {
+					return;
+				}
+			} while (!mDemand.compareAndSet(demand, demand + n < 0 ? Long.MAX_VALUE : demand + n));
+			//trampoline: a request made while iterations are resumed or emitted only leaves a resume behind, so a subscriber
+			//requesting from onNext never re-enters the loop request, see rule 3.3 of Reactive Streams
+			if (mResumeCount.getAndIncrement() != 0) {
+				return;
+			}
+			int missed = 1;
+			do {
+				mLoopRequest.resumeIterations();
+				missed = mResumeCount.addAndGet(-missed);
+			} while (missed != 0);
+		}
+
+		@Override
+		public void cancel() {
+			mCanceled = true;
+			if (mLoopRequest.isRequestRunning()) {
+				mLoopRequest.cancel();
+			}
+		}
+
+		@Override
+		public boolean tryAcquireIteration() {
+			long demand;
+			do {
+				demand = mDemand.get();
+				if (demand == Long.MAX_VALUE) {
+					return !mCanceled;
+				}
+				if (demand == 0 || mCanceled) {
+					return false;
+				}
+			} while (!mDemand.compareAndSet(demand, demand - 1));
+			return true;
+		}
+
+		@Override
+		public void onIteration(Request<T> loop) {
+			boolean emitting = mResumeCount.getAndIncrement() == 0;
+			try {
+				synchronized (this) {
+					if (mTerminated || mCanceled) {
+						return;
+					}
+					mSubscriber.onNext(loop);
+				}
+			} finally {
+				if (emitting) {
+					//the loop request checks the demand added meanwhile right after this iteration
+					mResumeCount.set(0);
+				} else {
+					mResumeCount.decrementAndGet();
+				}
+			}
+		}
+
+		@Override
+		public void accept(T value) {
+			synchronized (this) {
+				if (mTerminated || mCanceled) {
+					return;
+				}
+				mTerminated = true;
+				mSubscriber.onComplete();
+			}
+		}
+
+		@Override
+		public void onException(Exception e) {
+			terminate(e);
+		}
+
+		@Override
+		public void onTimeout() {
+			terminate(new TimeoutException(String.format("Loop request tagged %s timeout", mLoopRequest.getTag())));
+		}
+
+		@Override
+		public void onCanceled() {
+			terminate(new CancellationException(String.format("Loop request tagged %s canceled", mLoopRequest.getTag())));
+		}
+
+		private void terminate(Throwable throwable) {
+			synchronized (this) {
+				if (mTerminated || mCanceled) {
+					return;
+				}
+				mTerminated = true;
+				mSubscriber.onError(throwable);
+			}
+		}
+	}
+}
@@ -0,0 +1,135 @@
+package com.macfred.util.utils;
+
+import com.macfred.util.function.Callback;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class LoopRequestPublisherTest {
+
+    private static LoopRequest<Integer> newLoopRequest(AtomicInteger generated, int doneAt) {
+        return new LoopRequest<>(
+                () -> {
+                    int index = generated.getAndIncrement();
+                    return new SimpleRequest<>(
+                            new SimpleRequest.RequestAction<Integer>() {
+                                @Override
+                                public void execute(Callback<Integer> callback, long timeout) {
+                                    if (index < doneAt) {
+                                        callback.onException(new RuntimeException(String.format("Loop %s failed", index)));
+                                    } else {
+                                        callback.accept(index);
+                                    }
+                                }
+
+                                @Override
+                                public void cancel() {
+
+                                }
+                            }
+                    );
+                },
+                Request.TIMEOUT_UNLIMITED,
+                true
+        );
+    }
+
+    private static class RecordingSubscriber implements Flow.Subscriber<Request<Integer>> {
+        private final List<Request<Integer>> mItems = new ArrayList<>();
+        private Flow.Subscription mSubscription;
+        private Throwable mError;
+        private boolean mCompleted;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            mSubscription = subscription;
+        }
+
+        @Override
+        public void onNext(Request<Integer> item) {
+            mItems.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            mError = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            mCompleted = true;
+        }
+    }
+
+    @Test
+    public void testBackpressure() {
+        AtomicInteger generated = new AtomicInteger();
+        LoopRequestPublisher<Integer> publisher = new LoopRequestPublisher<>(() -> newLoopRequest(generated, 4), 5000);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+        //no loop launched without demand
+        Assert.assertEquals(0, generated.get());
+        subscriber.mSubscription.request(2);
+        Assert.assertEquals(2, generated.get());
+        Assert.assertEquals(2, subscriber.mItems.size());
+        Assert.assertEquals(Request.RequestStatus.Exception, subscriber.mItems.get(0).getStatus());
+        Assert.assertFalse(subscriber.mCompleted);
+        subscriber.mSubscription.request(10);
+        Assert.assertEquals(5, generated.get());
+        Assert.assertEquals(5, subscriber.mItems.size());
+        Assert.assertEquals(Request.RequestStatus.Done, subscriber.mItems.get(4).getStatus());
+        Assert.assertEquals(4, subscriber.mItems.get(4).getResultValue().intValue());
+        Assert.assertTrue(subscriber.mCompleted);
+        Assert.assertNull(subscriber.mError);
+    }
+
+    @Test
+    public void testCancel() {
+        AtomicInteger generated = new AtomicInteger();
+        LoopRequestPublisher<Integer> publisher = new LoopRequestPublisher<>(() -> newLoopRequest(generated, 100));
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+        subscriber.mSubscription.request(3);
+        Assert.assertEquals(3, subscriber.mItems.size());
+        subscriber.mSubscription.cancel();
+        subscriber.mSubscription.request(3);
+        Assert.assertEquals(3, generated.get());
+        Assert.assertEquals(3, subscriber.mItems.size());
+        Assert.assertFalse(subscriber.mCompleted);
+        Assert.assertNull(subscriber.mError);
+
+        RecordingSubscriber illegal = new RecordingSubscriber();
+        publisher.subscribe(illegal);
+        illegal.mSubscription.request(0);
+        Assert.assertTrue(illegal.mError instanceof IllegalArgumentException);
+    }
+
+    @Test
+    public void testRequestFromOnNext() {
+        AtomicInteger generated = new AtomicInteger();
+        LoopRequestPublisher<Integer> publisher = new LoopRequestPublisher<>(() -> newLoopRequest(generated, 1000));
+        int[] stackDepths = {Integer.MAX_VALUE, 0};
+        RecordingSubscriber subscriber = new RecordingSubscriber() {
+            @Override
+            public void onNext(Request<Integer> item) {
+                super.onNext(item);
+                int stackDepth = Thread.currentThread().getStackTrace().length;
+                stackDepths[0] = Math.min(stackDepths[0], stackDepth);
+                stackDepths[1] = Math.max(stackDepths[1], stackDepth);
+                super.mSubscription.request(1);
+            }
+        };
+        publisher.subscribe(subscriber);
+        subscriber.mSubscription.request(1);
+        Assert.assertEquals(1001, subscriber.mItems.size());
+        Assert.assertTrue(subscriber.mCompleted);
+        Assert.assertNull(subscriber.mError);
+        //synchronous recursion between subscriber and publisher stays bounded
+        Assert.assertTrue(String.format("Stack depth of onNext ranged from %s to %s", stackDepths[0], stackDepths[1]), stackDepths[1] - stackDepths[0] < 50);
+    }
+}